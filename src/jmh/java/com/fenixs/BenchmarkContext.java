@@ -0,0 +1,62 @@
+package com.fenixs;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against the benchmark database given by the {@code benchmark.datasource.url}
+ * system property (see the jmh block in build.gradle). That database is truncated by the benchmarks,
+ * never point it at real data.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application without a web server. The arguments are passed as command line
+     * arguments so they take precedence over application.yml, e.g. {@code --customer.cache.max-size=0}.
+     */
+    public static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments(args));
+    }
+
+    /**
+     * Starts the application with its web server on a random port, see {@link #port}.
+     */
+    public static ConfigurableApplicationContext startWebServer(String... args) {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        arguments.add("--server.port=0");
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments(arguments.toArray(String[]::new)));
+    }
+
+    public static int port(ApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public static String[] arguments(String... args) {
+        String url = System.getProperty("benchmark.datasource.url", "jdbc:postgresql://localhost:5432/customer_benchmark");
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=warn"
+        ));
+        arguments.addAll(List.of(args));
+        return arguments.toArray(String[]::new);
+    }
+
+    public static void truncateCustomers(ApplicationContext context) {
+        context.getBean(JdbcTemplate.class).execute("TRUNCATE customer RESTART IDENTITY");
+    }
+}
@@ -0,0 +1,68 @@
+package com.fenixs.customer;
+
+import com.fenixs.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CustomerDao#insertCustomers} with batches of {@value #BATCH_SIZE}. An operation is one customer,
+ * so the throughput score reads as inserts per second:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=CustomerBatchInsertBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CustomerBatchInsertBenchmark.BATCH_SIZE)
+public class CustomerBatchInsertBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+
+    @Param({"jdbc", "jpa"})
+    public String implementation;
+
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private String runId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.truncateCustomers(context);
+        customerDao = context.getBean(implementation, CustomerDao.class);
+        runId = UUID.randomUUID().toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insertCustomers() {
+        List<CustomerEntity> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long n = sequence.incrementAndGet();
+            batch.add(new CustomerEntity("customer " + n, runId + "-" + n + "@benchmark.fenixs.com", 18 + (int) (n % 80)));
+        }
+        customerDao.insertCustomers(batch);
+    }
+}
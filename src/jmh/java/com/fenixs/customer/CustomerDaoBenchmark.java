@@ -0,0 +1,169 @@
+package com.fenixs.customer;
+
+import com.fenixs.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The core {@link CustomerDao} operations (lookups by id, existence checks, unfiltered pages, the full
+ * stream, inserts and single row updates and deletes) against each implementation and table size.
+ * Throughput, sampled latency percentiles and (through the gc profiler) allocation rate are reported.
+ * Filtered pages, name search, bulk updates and deletes, the streaming page and the count estimate are
+ * not measured here.
+ * <p>
+ * Needs a disposable PostgreSQL database, e.g. with the docker-compose db running:
+ * <pre>
+ * docker exec postgres createdb -U fenixs customer_benchmark
+ * ./gradlew jmh -Pjmh.includes=CustomerDaoBenchmark -Pjmh.threads=8
+ * </pre>
+ */
+@State(Scope.Benchmark)
+public class CustomerDaoBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int LOOKUP_SIZE = 100;
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    @Param({"jdbc", "jpa", "list"})
+    public String implementation;
+
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private long[] ids;
+    private String[] emails;
+    private String runId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.truncateCustomers(context);
+        customerDao = context.getBean(implementation, CustomerDao.class);
+        runId = UUID.randomUUID().toString();
+
+        for (int from = 0; from < tableSize; from += SEED_BATCH_SIZE) {
+            List<CustomerEntity> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = from; i < Math.min(from + SEED_BATCH_SIZE, tableSize); i++) {
+                batch.add(newCustomer());
+            }
+            customerDao.insertCustomers(batch);
+        }
+
+        List<CustomerEntity> customers = customerDao.selectAllCustomers();
+        ids = customers.stream().mapToLong(CustomerEntity::getId).toArray();
+        emails = customers.stream().map(CustomerEntity::getEmail).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private CustomerEntity newCustomer() {
+        long n = sequence.incrementAndGet();
+        return new CustomerEntity("customer " + n, runId + "-" + n + "@benchmark.fenixs.com", 18 + (int) (n % 80));
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private String randomEmail() {
+        return emails[ThreadLocalRandom.current().nextInt(emails.length)];
+    }
+
+    @Benchmark
+    public List<CustomerEntity> selectAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    @Benchmark
+    public List<CustomerEntity> selectCustomersPage() {
+        return customerDao.selectCustomersPage(randomId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void streamAllCustomers(Blackhole blackhole) {
+        customerDao.streamAllCustomers(blackhole::consume);
+    }
+
+    @Benchmark
+    public Optional<CustomerEntity> selectCustomerById() {
+        return customerDao.selectCustomerById(randomId());
+    }
+
+    @Benchmark
+    public List<CustomerEntity> selectCustomersByIds() {
+        List<Long> lookup = new ArrayList<>(LOOKUP_SIZE);
+        for (int i = 0; i < LOOKUP_SIZE; i++) {
+            lookup.add(randomId());
+        }
+        return customerDao.selectCustomersByIds(lookup);
+    }
+
+    @Benchmark
+    public Optional<Long> insertCustomer() {
+        return customerDao.insertCustomer(newCustomer());
+    }
+
+    @Benchmark
+    public void insertCustomers() {
+        List<CustomerEntity> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < INSERT_BATCH_SIZE; i++) {
+            batch.add(newCustomer());
+        }
+        customerDao.insertCustomers(batch);
+    }
+
+    @Benchmark
+    public boolean existPersonWithId() {
+        return customerDao.existPersonWithId(randomId());
+    }
+
+    @Benchmark
+    public boolean existPersonWithEmail() {
+        return customerDao.existPersonWithEmail(randomEmail());
+    }
+
+    @Benchmark
+    public Set<String> selectExistingEmails() {
+        List<String> lookup = new ArrayList<>(LOOKUP_SIZE);
+        for (int i = 0; i < LOOKUP_SIZE; i++) {
+            lookup.add(i % 2 == 0 ? randomEmail() : runId + "-missing-" + i);
+        }
+        return customerDao.selectExistingEmails(lookup);
+    }
+
+    @Benchmark
+    public Optional<CustomerChange> updateCustomer() {
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(randomId());
+        changes.setAge(ThreadLocalRandom.current().nextInt(18, 100));
+        return customerDao.updateCustomer(changes);
+    }
+
+    @Benchmark
+    public void insertAndDeleteCustomer() {
+        customerDao.insertCustomer(newCustomer())
+                .ifPresent(customerDao::deleteCustomerById);
+    }
+}
@@ -0,0 +1,104 @@
+package com.fenixs.customer;
+
+import com.fenixs.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The customer endpoints over HTTP, with Tomcat on its platform thread pool and on virtual threads.
+ * The customer cache is off so every read reaches PostgreSQL. Run with more client threads than Tomcat's
+ * 200 platform threads to see the difference, virtual threads need Java 21:
+ * <pre>
+ * ./gradlew jmh -PvirtualThreads -Pjmh.includes=CustomerEndpointBenchmark -Pjmh.threads=400
+ * </pre>
+ */
+@State(Scope.Benchmark)
+public class CustomerEndpointBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String customers;
+    private long[] ids;
+    private String runId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startWebServer(
+                "--customer.virtual-threads.enabled=" + virtualThreads,
+                "--customer.cache.max-size=0"
+        );
+        BenchmarkContext.truncateCustomers(context);
+        runId = UUID.randomUUID().toString();
+
+        CustomerDao customerDao = context.getBean("jdbc", CustomerDao.class);
+        List<CustomerEntity> seed = new ArrayList<>(TABLE_SIZE);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            long n = sequence.incrementAndGet();
+            seed.add(new CustomerEntity("customer " + n, runId + "-" + n + "@benchmark.fenixs.com", 18 + (int) (n % 80)));
+        }
+        customerDao.insertCustomers(seed);
+        ids = customerDao.selectAllCustomers().stream().mapToLong(CustomerEntity::getId).toArray();
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        customers = "http://localhost:%s/api/v1/customers".formatted(BenchmarkContext.port(context));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("%s %s: %s".formatted(request.uri(), response.statusCode(), response.body()));
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    public String getCustomer() throws IOException, InterruptedException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return send(HttpRequest.newBuilder(URI.create(customers + "/" + id)).build());
+    }
+
+    @Benchmark
+    public String getCustomers() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(customers + "?size=50")).build());
+    }
+
+    @Benchmark
+    public String registerCustomer() throws IOException, InterruptedException {
+        long n = sequence.incrementAndGet();
+        String body = """
+                {"name": "customer %s", "email": "%s-%s@benchmark.fenixs.com", "age": 30}
+                """.formatted(n, runId, n);
+        return send(HttpRequest.newBuilder(URI.create(customers))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+}
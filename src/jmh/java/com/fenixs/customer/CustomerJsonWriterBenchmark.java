@@ -0,0 +1,106 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fenixs.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One page of the customer list rendered as JSON, through {@link CustomerService#toPage} and Jackson
+ * bean serialization, through {@link CustomerJsonWriter} and copied from the {@link CustomerResponseCache}
+ * page snapshots. An operation is one customer, so the gc profiler's {@code gc.alloc.rate.norm} reads as
+ * bytes allocated per customer:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=CustomerJsonWriterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(CustomerJsonWriterBenchmark.PAGE_SIZE)
+public class CustomerJsonWriterBenchmark {
+
+    static final int PAGE_SIZE = 500;
+    private static final int TABLE_SIZE = 10_000;
+    private static final int HOT_PAGES = 64;
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private CustomerDao customerDao;
+    private CustomerJsonWriter customerJsonWriter;
+    private ObjectMapper objectMapper;
+    private String[] cursors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.truncateCustomers(context);
+        customerService = context.getBean(CustomerService.class);
+        customerJsonWriter = context.getBean(CustomerJsonWriter.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        String runId = UUID.randomUUID().toString();
+        List<CustomerEntity> seed = new ArrayList<>(TABLE_SIZE);
+        for (int n = 0; n < TABLE_SIZE; n++) {
+            seed.add(new CustomerEntity("customer " + n, runId + "-" + n + "@benchmark.fenixs.com", 18 + n % 80));
+        }
+        customerDao = context.getBean("jdbc", CustomerDao.class);
+        customerDao.insertCustomers(seed);
+
+        // cursors of every full page, so each invocation writes PAGE_SIZE customers
+        long[] ids = customerDao.selectAllCustomers().stream().mapToLong(CustomerEntity::getId).toArray();
+        cursors = new String[ids.length - PAGE_SIZE];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = CustomerService.encodeCursor(ids[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomCursor() {
+        return cursors[ThreadLocalRandom.current().nextInt(cursors.length)];
+    }
+
+    @Benchmark
+    public void objectMapper() throws IOException {
+        Long afterId = CustomerService.decodeCursor(randomCursor());
+        objectMapper.writeValue(DISCARD,
+                CustomerService.toPage(customerDao.selectCustomersPage(afterId, PAGE_SIZE + 1), PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void customerJsonWriter() throws IOException {
+        customerJsonWriter.writePage(CustomerFilter.NONE, CustomerService.decodeCursor(randomCursor()), PAGE_SIZE, DISCARD);
+    }
+
+    // a working set of pages that fits the snapshot cache, as hot reads would
+    @Benchmark
+    public void responseCache() throws IOException {
+        String cursor = cursors[ThreadLocalRandom.current().nextInt(HOT_PAGES)];
+        customerService.writeCustomers(CustomerFilter.NONE, cursor, PAGE_SIZE, DISCARD);
+    }
+}
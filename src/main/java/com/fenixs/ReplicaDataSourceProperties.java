@@ -0,0 +1,25 @@
+package com.fenixs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas of {@code spring.datasource}. A replica without credentials uses the primary's.
+ */
+@ConfigurationProperties(prefix = "customer.datasource")
+public record ReplicaDataSourceProperties(
+        @DefaultValue List<Replica> replicas,
+        Duration maxLag,
+        Duration checkInterval
+) {
+
+    public record Replica(
+            String url,
+            String username,
+            String password
+    ) {
+    }
+}
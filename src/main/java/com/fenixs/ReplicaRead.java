@@ -0,0 +1,21 @@
+package com.fenixs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method whose reads may be served by a read replica, and so may be up to
+ * {@code customer.datasource.max-lag} behind the primary. Only put it on reads whose result goes straight
+ * back to the caller: anything that fills a cache, checks for duplicates or follows a write of the same
+ * request has to see the primary. Without replicas configured the annotation has no effect.
+ * <p>
+ * A connection already bound to the thread, i.e. a surrounding transaction, is used as is.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+}
@@ -0,0 +1,114 @@
+package com.fenixs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Active once {@code customer.datasource.replicas} lists a replica: calls inside {@link ReplicaRead} methods are
+ * then served by the replicas and everything else by {@code spring.datasource}. Every pool is configured from
+ * {@code spring.datasource.hikari} and reports the {@code hikaricp.*} metrics tagged with its pool name (primary,
+ * replica-1, ...). The pools are not beans, so with virtual threads enabled they are put behind their own
+ * {@link ConnectionPermitDataSource} here.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "customer.datasource", name = "replicas[0].url")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @Primary
+    ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                        ReplicaDataSourceProperties replicaProperties,
+                                        ObjectProvider<VirtualThreadsProperties> virtualThreadsProperties,
+                                        Environment environment,
+                                        MeterRegistry meterRegistry) {
+        VirtualThreadsProperties virtualThreads = virtualThreadsProperties.getIfAvailable();
+        HikariDataSource primary = pool(
+                ReplicaRoutingDataSource.PRIMARY,
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword(),
+                environment, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = replicaProperties.replicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = configured.get(i);
+            String name = "replica-" + (i + 1);
+            replicas.put(name, permits(pool(
+                    name,
+                    replica.url(),
+                    replica.username() != null ? replica.username() : primary.getUsername(),
+                    replica.password() != null ? replica.password() : primary.getPassword(),
+                    environment, meterRegistry), virtualThreads));
+        }
+        return new ReplicaRoutingDataSource(permits(primary, virtualThreads), replicas, replicaProperties.maxLag(), meterRegistry);
+    }
+
+    /**
+     * Runs {@link ReplicaRead} methods in a replica read scope. Ordered ahead of the transaction interceptor,
+     * so a transaction such a method starts takes its connection from a replica.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor replicaReadAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(ReplicaRead.class),
+                (MethodInterceptor) invocation -> {
+                    boolean outer = ReplicaRoutingDataSource.beginReplicaReads();
+                    try {
+                        return invocation.proceed();
+                    } finally {
+                        ReplicaRoutingDataSource.endReplicaReads(outer);
+                    }
+                });
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    private static DataSource permits(HikariDataSource pool, VirtualThreadsProperties virtualThreads) {
+        if (virtualThreads == null || !virtualThreads.enabled()) {
+            return pool;
+        }
+        return new ConnectionPermitDataSource(pool, pool.getMaximumPoolSize(), virtualThreads.connectionWait());
+    }
+
+    private static HikariDataSource pool(String name,
+                                         String url,
+                                         String username,
+                                         String password,
+                                         Environment environment,
+                                         MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
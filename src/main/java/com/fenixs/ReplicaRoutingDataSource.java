@@ -0,0 +1,210 @@
+package com.fenixs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out replica connections to calls inside a {@link ReplicaRead} method and primary connections everywhere
+ * else, read only transactions included. Reads are spread round robin over the replicas whose last check
+ * succeeded with a replication lag of at most {@code maxLag}; with no such replica they fall back to the primary.
+ * Replicas start out unchecked, so reads only move over once the first check has run.
+ * <p>
+ * A replica that has replayed all the WAL the primary had written when the check started has no lag, whether
+ * or not it is still streaming. Otherwise the lag is the age of the last transaction it replayed, so a replica
+ * whose WAL receiver dropped out turns unhealthy as soon as the primary writes and the age passes {@code maxLag}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private static final String PRIMARY_LSN_SQL = """
+            SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')
+            """;
+    private static final String REPLICA_SQL = """
+            SELECT pg_is_in_recovery() AS in_recovery,
+                   pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0') AS replayed_lsn,
+                   EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS replay_age
+            """;
+
+    private static final ThreadLocal<Boolean> REPLICA_READS = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+
+    private final Map<String, AtomicLong> lagMillis = new HashMap<>();
+    private final Map<String, Counter> routed = new HashMap<>();
+    private final Counter fallbacks;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Duration maxLag,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        routed.put(PRIMARY, routed(meterRegistry, PRIMARY));
+        replicas.keySet().forEach(name -> {
+            routed.put(name, routed(meterRegistry, name));
+            AtomicLong lag = new AtomicLong(-1);
+            lagMillis.put(name, lag);
+            Gauge.builder("customer.datasource.replica.lag", lag, l -> l.get() < 0 ? Double.NaN : l.get() / 1000d)
+                    .tag("pool", name)
+                    .baseUnit("seconds")
+                    .description("Replication lag at the last check, NaN when the replica could not be reached")
+                    .register(meterRegistry);
+            Gauge.builder("customer.datasource.replica.healthy", this, r -> r.healthyReplicas.contains(name) ? 1 : 0)
+                    .tag("pool", name)
+                    .description("Whether reads are currently routed to the replica")
+                    .register(meterRegistry);
+        });
+        this.fallbacks = Counter.builder("customer.datasource.replica.fallbacks")
+                .description("Read only connections served by the primary because no replica was healthy")
+                .register(meterRegistry);
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String pool) {
+        return Counter.builder("customer.datasource.connections.routed")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a {@link ReplicaRead} scope on the current thread, returns whether one was open already.
+     */
+    static boolean beginReplicaReads() {
+        boolean outer = replicaReads();
+        REPLICA_READS.set(Boolean.TRUE);
+        return outer;
+    }
+
+    static void endReplicaReads(boolean outer) {
+        if (!outer) {
+            REPLICA_READS.remove();
+        }
+    }
+
+    static boolean replicaReads() {
+        return REPLICA_READS.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = PRIMARY;
+        if (replicaReads()) {
+            List<String> healthy = healthyReplicas;
+            if (healthy.isEmpty()) {
+                fallbacks.increment();
+            } else {
+                key = healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+            }
+        }
+        routed.get(key).increment();
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${customer.datasource.check-interval}")
+    public void checkReplicas() {
+        // read before the replicas, so replaying up to it means having every write committed before the check
+        Long primaryLsn = primaryLsn();
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, dataSource) -> {
+            long lag = lagMillis(dataSource, primaryLsn);
+            lagMillis.get(name).set(lag);
+            if (lag >= 0 && lag <= maxLag.toMillis()) {
+                healthy.add(name);
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    List<String> healthyReplicas() {
+        return healthyReplicas;
+    }
+
+    private Long primaryLsn() {
+        try {
+            Number lsn = checkTemplate(primary).queryForObject(PRIMARY_LSN_SQL, Number.class);
+            return lsn == null ? null : lsn.longValue();
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private long lagMillis(DataSource replica, Long primaryLsn) {
+        try {
+            return checkTemplate(replica).queryForObject(REPLICA_SQL, (rs, rowNum) -> lagMillis(
+                    rs.getBoolean("in_recovery"),
+                    longOrNull((Number) rs.getObject("replayed_lsn")),
+                    primaryLsn,
+                    longOrNull((Number) rs.getObject("replay_age"))
+            ));
+        } catch (DataAccessException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The lag in milliseconds, -1 when it cannot be told. Without the primary's position only the replay age counts.
+     */
+    static long lagMillis(boolean inRecovery, Long replayedLsn, Long primaryLsn, Long replayAgeMillis) {
+        if (!inRecovery) {
+            return 0;
+        }
+        if (replayedLsn != null && primaryLsn != null && replayedLsn >= primaryLsn) {
+            return 0;
+        }
+        return replayAgeMillis == null ? -1 : Math.max(0, replayAgeMillis);
+    }
+
+    private static Long longOrNull(Number number) {
+        return number == null ? null : number.longValue();
+    }
+
+    private JdbcTemplate checkTemplate(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void destroy() throws SQLException {
+        for (DataSource replica : replicas.values()) {
+            close(replica);
+        }
+        close(primary);
+    }
+
+    // the pools may be wrapped, e.g. in a ConnectionPermitDataSource
+    private static void close(DataSource dataSource) throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            dataSource.unwrap(HikariDataSource.class).close();
+        }
+    }
+}
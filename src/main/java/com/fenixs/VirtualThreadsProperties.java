@@ -0,0 +1,12 @@
+package com.fenixs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "customer.virtual-threads")
+public record VirtualThreadsProperties(
+        boolean enabled,
+        Duration connectionWait
+) {
+}
@@ -0,0 +1,17 @@
+package com.fenixs.customer;
+
+public record CustomerBulkResult(
+        Long id,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        DELETED,
+        NOT_FOUND,
+        DUPLICATE,
+        INVALID
+    }
+}
@@ -0,0 +1,9 @@
+package com.fenixs.customer;
+
+public record CustomerBulkUpdateRequest(
+        Long id,
+        String name,
+        String email,
+        Integer age
+) {
+}
@@ -0,0 +1,81 @@
+package com.fenixs.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, size and TTL evicted (W-TinyLFU) cache of customers by id. Hit, miss and eviction
+ * counts are published as the {@code cache.*} metrics with {@code cache=customers}.
+ */
+@Component
+public class CustomerCache {
+
+    private final Cache<Long, CustomerEntity> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CustomerCache(CustomerCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+    }
+
+    /**
+     * Returns the cached customer or loads it; customers that do not exist are not cached.
+     */
+    public Optional<CustomerEntity> get(Long id, Function<Long, Optional<CustomerEntity>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Returns the cached customers among {@code ids} and loads all the others with one call to
+     * {@code loader}; ids the loader does not return are left out and not cached.
+     * <p>
+     * Unlike {@link #get}, the load does not hold a per key lock, so an invalidation can land while it
+     * runs. The loaded customers are only kept in the cache when no invalidation happened meanwhile,
+     * otherwise a stale row could outlive the write that replaced it for the whole TTL.
+     */
+    public Map<Long, CustomerEntity> getAll(Collection<Long> ids,
+                                            Function<Set<Long>, Map<Long, CustomerEntity>> loader) {
+        Map<Long, CustomerEntity> found = new HashMap<>(cache.getAllPresent(ids));
+        Set<Long> missing = new HashSet<>(ids);
+        missing.removeAll(found.keySet());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long generation = invalidations.get();
+        Map<Long, CustomerEntity> loaded = loader.apply(Collections.unmodifiableSet(missing));
+        cache.putAll(loaded);
+        // an invalidation counted after this check removes its key from the cache after our put
+        if (invalidations.get() != generation) {
+            cache.invalidateAll(loaded.keySet());
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
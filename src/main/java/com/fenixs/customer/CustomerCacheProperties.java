@@ -0,0 +1,12 @@
+package com.fenixs.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "customer.cache")
+public record CustomerCacheProperties(
+        long maxSize,
+        Duration ttl
+) {
+}
@@ -0,0 +1,10 @@
+package com.fenixs.customer;
+
+/**
+ * A customer as it was before and after an update.
+ */
+public record CustomerChange(
+        CustomerEntity previous,
+        CustomerEntity current
+) {
+}
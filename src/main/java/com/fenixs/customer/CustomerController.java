@@ -1,42 +1,169 @@
 package com.fenixs.customer;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("api/v1/customers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerExportService customerExportService;
+    private final CustomerImportService customerImportService;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerExportService customerExportService,
+                              CustomerImportService customerImportService) {
         this.customerService = customerService;
+        this.customerExportService = customerExportService;
+        this.customerImportService = customerImportService;
     }
 
 
+    /**
+     * Writes the page from its snapshot or straight from the result set, instead of returning a
+     * {@link CustomerPage} for Jackson to serialize.
+     */
     @GetMapping
-    public List<CustomerEntity> getCustomer() {
-        return customerService.getAllCustomers();
+    public void getCustomers(@RequestParam(value = "minAge", required = false) Integer minAge,
+                             @RequestParam(value = "maxAge", required = false) Integer maxAge,
+                             @RequestParam(value = "emailDomain", required = false) String emailDomain,
+                             @RequestParam(value = "cursor", required = false) String cursor,
+                             @RequestParam(value = "size", required = false) Integer size,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        customerService.writeCustomers(new CustomerFilter(minAge, maxAge, emailDomain), cursor, size, response.getOutputStream());
     }
 
+    @GetMapping(params = "fields")
+    public CustomerViewPage getCustomerViews(@RequestParam(value = "minAge", required = false) Integer minAge,
+                                             @RequestParam(value = "maxAge", required = false) Integer maxAge,
+                                             @RequestParam(value = "emailDomain", required = false) String emailDomain,
+                                             @RequestParam("fields") String fields,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "size", required = false) Integer size) {
+        return customerService.getCustomerViews(new CustomerFilter(minAge, maxAge, emailDomain), fields, cursor, size);
+    }
+
+    @GetMapping("search")
+    public CustomerPage searchCustomers(@RequestParam("name") String name,
+                                        @RequestParam(value = "match", defaultValue = "contains") String match,
+                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "size", required = false) Integer size) {
+        return customerService.searchCustomers(name, match, cursor, size);
+    }
+
+    @GetMapping(value = "search", params = "fields")
+    public CustomerViewPage searchCustomerViews(@RequestParam("name") String name,
+                                                @RequestParam(value = "match", defaultValue = "contains") String match,
+                                                @RequestParam("fields") String fields,
+                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "size", required = false) Integer size) {
+        return customerService.searchCustomerViews(name, match, fields, cursor, size);
+    }
+
+    @GetMapping("batch")
+    public CustomerBatch getCustomersByIds(@RequestParam("ids") List<Long> ids) {
+        return customerService.getCustomersByIds(ids);
+    }
+
+    @GetMapping("stats")
+    public CustomerStats getCustomerStats() {
+        return customerService.getCustomerStats();
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        CustomerExportFormat exportFormat = CustomerExportFormat.from(format);
+        StreamingResponseBody body = outputStream -> customerExportService.exportCustomers(exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .body(body);
+    }
+
+    /**
+     * Writes the pre-encoded customer as is. Answers {@code If-None-Match} with 304 when the client
+     * already holds the current version.
+     */
     @GetMapping("{customerId}")
-    public CustomerEntity getCustomer(@PathVariable("customerId") Long customerId) {
-        return customerService.getCustomer(customerId);
+    public ResponseEntity<byte[]> getCustomer(@PathVariable("customerId") Long customerId, WebRequest request) {
+        CustomerResponseCache.EncodedCustomer customer = customerService.getEncodedCustomer(customerId);
+        if (request.checkNotModified(customer.eTag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(customer.eTag())
+                .body(customer.json());
+    }
+
+    @GetMapping(value = "{customerId}", params = "fields")
+    public CustomerView getCustomerView(@PathVariable("customerId") Long customerId,
+                                        @RequestParam("fields") String fields) {
+        return customerService.getCustomerView(customerId, fields);
     }
 
     @PostMapping
-    public void registerCustomer(@RequestBody CustomerRegistrationRequest request) {
-        customerService.addCustomer(request);
+    public CustomerRegistrationResponse registerCustomer(@RequestBody CustomerRegistrationRequest request) {
+        return new CustomerRegistrationResponse(customerService.addCustomer(request));
+    }
+
+    @PostMapping("bulk")
+    public List<CustomerRegistrationResult> registerCustomers(@RequestBody List<CustomerRegistrationRequest> requests) {
+        return customerService.addCustomers(requests);
+    }
+
+    @PostMapping(value = "import", consumes = "text/csv")
+    public CustomerImportReport importCustomers(InputStream csv,
+                                                @RequestParam(value = "header", defaultValue = "true") boolean header) {
+        return customerImportService.importCustomers(csv, header);
     }
 
+    /**
+     * With {@code If-Match} the update only applies to the version the client read, otherwise 412.
+     */
     @PutMapping("{customerId}")
-    public void updateCustomer(@PathVariable("customerId") Long customerId, @RequestBody CustomerUpdateRequest request) {
-        customerService.updateCustomer(customerId, request);
+    public ResponseEntity<CustomerEntity> updateCustomer(@PathVariable("customerId") Long customerId,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         @RequestBody CustomerUpdateRequest request) {
+        CustomerEntity updated = customerService.updateCustomer(customerId, request, CustomerETag.version(ifMatch));
+        return ResponseEntity.ok().eTag(CustomerETag.of(updated)).body(updated);
+    }
+
+    @PutMapping("bulk")
+    public List<CustomerBulkResult> updateCustomers(@RequestBody List<CustomerBulkUpdateRequest> requests) {
+        return customerService.updateCustomers(requests);
     }
 
     @DeleteMapping("{customerId}")
     public void deleteCustomer(@PathVariable("customerId") Long customerId) {
         customerService.deleteCustomerById(customerId);
     }
+
+    @DeleteMapping(params = "ids")
+    public List<CustomerBulkResult> deleteCustomersByIds(@RequestParam("ids") List<Long> ids) {
+        return customerService.deleteCustomersByIds(ids);
+    }
+
+    /**
+     * Deletes up to {@value CustomerService#MAX_BULK_SIZE} customers matching the filter per call.
+     */
+    @DeleteMapping(params = "!ids")
+    public List<CustomerBulkResult> deleteCustomers(@RequestParam(value = "minAge", required = false) Integer minAge,
+                                                    @RequestParam(value = "maxAge", required = false) Integer maxAge,
+                                                    @RequestParam(value = "emailDomain", required = false) String emailDomain) {
+        return customerService.deleteCustomers(new CustomerFilter(minAge, maxAge, emailDomain));
+    }
 }
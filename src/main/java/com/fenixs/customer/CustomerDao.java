@@ -2,23 +2,82 @@ package com.fenixs.customer;
 
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public interface CustomerDao {
 
     List<CustomerEntity> selectAllCustomers();
 
+    List<CustomerEntity> selectCustomersPage(Long afterId, int limit);
+
+    List<CustomerEntity> selectCustomersPage(CustomerFilter filter, Long afterId, int limit);
+
+    /**
+     * Same rows as {@link #selectCustomersPage(CustomerFilter, Long, int)}, handed to {@code handler} as
+     * they are read, for writers that serialize a page without materializing it.
+     */
+    void streamCustomersPage(CustomerFilter filter, Long afterId, int limit, CustomerRowHandler handler);
+
+    List<CustomerView> selectCustomerViewsPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit);
+
+    List<CustomerEntity> selectCustomersByName(String name, CustomerNameMatch match, Long afterId, int limit);
+
+    void streamAllCustomers(Consumer<CustomerEntity> action);
+
+    /**
+     * Roughly how many customers there are, cheap enough to call before {@link #streamAllCustomers}
+     * on a large table. May trail recent writes.
+     */
+    long estimateCustomerCount();
+
     Optional<CustomerEntity> selectCustomerById(Long id);
 
-    void insertCustomer(CustomerEntity customerEntity);
+    /**
+     * The customers among {@code ids} that exist, in no particular order.
+     */
+    List<CustomerEntity> selectCustomersByIds(Collection<Long> ids);
+
+    Optional<Long> insertCustomer(CustomerEntity customerEntity);
+
+    void insertCustomers(List<CustomerEntity> customerEntities);
 
     boolean existPersonWithId(Long id);
 
     boolean existPersonWithEmail(String email);
 
-    void updateCustomer(CustomerEntity updateObject);
+    Set<String> selectExistingEmails(Collection<String> emails);
+
+    /**
+     * Applies the non null properties of {@code updateObject} and bumps the version. When
+     * {@code updateObject} carries a version the update only goes ahead if the stored row is still at it.
+     *
+     * @return empty when the customer is missing, at another version or nothing changed
+     */
+    Optional<CustomerChange> updateCustomer(CustomerEntity updateObject);
+
+    /**
+     * {@link #updateCustomer} for many customers at once, without the version check. Customers that are
+     * missing or would not change are left out of the result. When one of the new emails is taken
+     * nothing is updated.
+     */
+    List<CustomerChange> updateCustomers(List<CustomerEntity> updateObjects);
+
+    Optional<CustomerEntity> deleteCustomerById(Long id);
+
+    /**
+     * @return the customers among {@code ids} that were deleted
+     */
+    List<CustomerEntity> deleteCustomersByIds(Collection<Long> ids);
 
-    void deleteCustomerById(Long id);
+    /**
+     * Deletes the first {@code limit} customers, by id, that match the filter.
+     *
+     * @return the deleted customers
+     */
+    List<CustomerEntity> deleteCustomers(CustomerFilter filter, int limit);
 }
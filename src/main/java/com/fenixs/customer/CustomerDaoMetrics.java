@@ -0,0 +1,135 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Wraps every {@link CustomerDao} bean in a proxy recording, tagged by {@code dao} (the bean name) and {@code method}:
+ * <ul>
+ *     <li>{@code customer.dao.calls}: latency timer, also tagged by {@code outcome} (success, error) and
+ *     {@code exception}, so the error count is the count of {@code outcome=error}. It publishes a percentile
+ *     histogram and p50/p95/p99.</li>
+ *     <li>{@code customer.dao.rows}: rows returned by collection and optional results, rows handed out by
+ *     {@link CustomerDao#streamAllCustomers} and {@link CustomerDao#streamCustomersPage}.</li>
+ * </ul>
+ */
+@Component
+public class CustomerDaoMetrics implements BeanPostProcessor {
+
+    static final String CALLS = "customer.dao.calls";
+    static final String ROWS = "customer.dao.rows";
+
+    // looked up lazily, a post processor must not force the registry to be created early
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CustomerDaoMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof CustomerDao customerDao) {
+            return instrument(customerDao, beanName, meterRegistry.getObject());
+        }
+        return bean;
+    }
+
+    static CustomerDao instrument(CustomerDao customerDao, String dao, MeterRegistry meterRegistry) {
+        // built once per tag combination, registering on every call would cost a builder, an id and a
+        // registry lookup inside the latency being measured
+        Map<Call, Timer> calls = new ConcurrentHashMap<>();
+        Map<String, DistributionSummary> rowCounts = new ConcurrentHashMap<>();
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(customerDao);
+        proxyFactory.addInterface(CustomerDao.class);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            String method = invocation.getMethod().getName();
+            AtomicLong streamed = null;
+            Object[] arguments = invocation.getArguments();
+            int last = arguments.length - 1;
+            if (last >= 0 && arguments[last] instanceof Consumer<?> action) {
+                streamed = new AtomicLong();
+                arguments[last] = counting(action, streamed);
+            } else if (last >= 0 && arguments[last] instanceof CustomerRowHandler handler) {
+                streamed = new AtomicLong();
+                arguments[last] = counting(handler, streamed);
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String exception = "none";
+            try {
+                Object result = invocation.proceed();
+                long rows = streamed != null ? streamed.get() : rows(result);
+                if (rows >= 0) {
+                    meter(rowCounts, method, key -> DistributionSummary.builder(ROWS)
+                            .baseUnit("rows")
+                            .tags("dao", dao, "method", key)
+                            .register(meterRegistry))
+                            .record(rows);
+                }
+                return result;
+            } catch (Throwable e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                sample.stop(meter(calls, new Call(method, exception), key -> Timer.builder(CALLS)
+                        .tags("dao", dao, "method", key.method())
+                        .tag("outcome", "none".equals(key.exception()) ? "success" : "error")
+                        .tag("exception", key.exception())
+                        .publishPercentileHistogram()
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry)));
+            }
+        });
+        return (CustomerDao) proxyFactory.getProxy(CustomerDao.class.getClassLoader());
+    }
+
+    private record Call(String method, String exception) {
+    }
+
+    // get first, computeIfAbsent may lock the bin even when the key is present
+    private static <K, M> M meter(Map<K, M> meters, K key, Function<K, M> register) {
+        M meter = meters.get(key);
+        return meter != null ? meter : meters.computeIfAbsent(key, register);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Consumer<T> counting(Consumer<?> action, AtomicLong counter) {
+        Consumer<T> delegate = (Consumer<T>) action;
+        return item -> {
+            counter.incrementAndGet();
+            delegate.accept(item);
+        };
+    }
+
+    private static CustomerRowHandler counting(CustomerRowHandler handler, AtomicLong counter) {
+        return (id, name, email, age) -> {
+            counter.incrementAndGet();
+            handler.row(id, name, email, age);
+        };
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.PreconditionFailedException;
+
+/**
+ * Strong entity tags derived from the customer's version column, so a conditional request is answered
+ * without comparing bodies.
+ */
+final class CustomerETag {
+
+    private CustomerETag() {
+    }
+
+    static String of(CustomerEntity customer) {
+        return "\"" + customer.getVersion() + "\"";
+    }
+
+    /**
+     * @return the version an {@code If-Match} header asks for, or null when the update is unconditional
+     */
+    static Long version(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        // weak tags never match under If-Match and lists of tags are not supported
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw new PreconditionFailedException("If-Match [%s] does not match the current customer".formatted(ifMatch));
+    }
+}
@@ -0,0 +1,146 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory Bloom filter of every customer email, used to answer "is this email taken" without a query
+ * when the answer is a definite no. Possible matches still go to the database, so a false positive only
+ * costs the query that would have run anyway.
+ * <p>
+ * Emails are added on insert and update. Deleted or replaced emails are only dropped by a rebuild,
+ * which runs at startup, after CSV imports and on the {@code customer.email-filter.rebuild-interval}
+ * schedule (this also picks up rows written by other instances). Until the first build completes
+ * every check goes to the database.
+ */
+@Component
+public class CustomerEmailFilter {
+
+    private final CustomerDao customerDao;
+    private final CustomerEmailFilterProperties properties;
+
+    private volatile EmailBloomFilter filter;
+    private volatile EmailBloomFilter building;
+    private final AtomicLong entries = new AtomicLong();
+
+    private final Counter definiteNegatives;
+    private final Counter falsePositives;
+    private final Counter truePositives;
+
+    public CustomerEmailFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                               CustomerEmailFilterProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.properties = properties;
+        this.definiteNegatives = checks(meterRegistry, "negative");
+        this.falsePositives = checks(meterRegistry, "false_positive");
+        this.truePositives = checks(meterRegistry, "true_positive");
+        Gauge.builder("customer.email.filter.size", this, f -> f.filter == null ? 0 : f.filter.sizeInBytes())
+                .baseUnit("bytes")
+                .description("Memory held by the customer email Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.entries", entries, AtomicLong::get)
+                .description("Emails added to the customer email Bloom filter since the last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.false.positive.rate", this, CustomerEmailFilter::observedFalsePositiveRate)
+                .description("Share of absent emails the filter could not rule out")
+                .register(meterRegistry);
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("customer.email.filter.checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the subset of {@code emails} already taken, querying only those the filter cannot rule out.
+     */
+    public Set<String> existingEmails(Collection<String> emails) {
+        EmailBloomFilter current = filter;
+        Collection<String> candidates = emails;
+        if (current != null) {
+            candidates = emails.stream()
+                    .filter(current::mightContain)
+                    .collect(Collectors.toSet());
+            definiteNegatives.increment(emails.size() - candidates.size());
+        }
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> existing = customerDao.selectExistingEmails(candidates);
+        if (current != null) {
+            truePositives.increment(existing.size());
+            falsePositives.increment(candidates.size() - existing.size());
+        }
+        return existing;
+    }
+
+    public void add(String email) {
+        // read building before filter: a rebuild swaps filter in before clearing building
+        EmailBloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+        EmailBloomFilter current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+        entries.incrementAndGet();
+    }
+
+    /**
+     * Builds a fresh filter from the customer table and swaps it in. Emails added while the rebuild
+     * runs go to both filters, so nothing committed before the swap is lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${customer.email-filter.rebuild-interval}",
+            fixedDelayString = "${customer.email-filter.rebuild-interval}"
+    )
+    public synchronized void rebuild() {
+        // sized before streaming, a filter that fills past its expected insertions stops ruling anything out
+        long customers = Math.max(customerDao.estimateCustomerCount(), entries.get());
+        long expectedInsertions = Math.max(properties.expectedInsertions(), customers * 3 / 2);
+        EmailBloomFilter next = new EmailBloomFilter(expectedInsertions, properties.falsePositiveProbability());
+        AtomicLong count = new AtomicLong();
+        building = next;
+        try {
+            customerDao.streamAllCustomers(customer -> {
+                next.put(customer.getEmail());
+                count.incrementAndGet();
+            });
+            filter = next;
+            entries.set(count.get());
+        } finally {
+            building = null;
+        }
+    }
+
+    public CustomerEmailFilterStats stats() {
+        EmailBloomFilter current = filter;
+        return new CustomerEmailFilterStats(
+                current != null,
+                entries.get(),
+                current == null ? 0 : current.sizeInBytes(),
+                current == null ? 0 : current.hashFunctions(),
+                observedFalsePositiveRate()
+        );
+    }
+
+    private double observedFalsePositiveRate() {
+        double negatives = definiteNegatives.count() + falsePositives.count();
+        return negatives == 0 ? 0 : falsePositives.count() / negatives;
+    }
+}
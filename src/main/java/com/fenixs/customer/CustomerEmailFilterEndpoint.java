@@ -0,0 +1,24 @@
+package com.fenixs.customer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read only: a rebuild scans the whole customer table, so it is left to the schedule and CSV imports.
+ */
+@Component
+@Endpoint(id = "emailfilter")
+public class CustomerEmailFilterEndpoint {
+
+    private final CustomerEmailFilter customerEmailFilter;
+
+    public CustomerEmailFilterEndpoint(CustomerEmailFilter customerEmailFilter) {
+        this.customerEmailFilter = customerEmailFilter;
+    }
+
+    @ReadOperation
+    public CustomerEmailFilterStats stats() {
+        return customerEmailFilter.stats();
+    }
+}
@@ -0,0 +1,10 @@
+package com.fenixs.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "customer.email-filter")
+public record CustomerEmailFilterProperties(
+        long expectedInsertions,
+        double falsePositiveProbability
+) {
+}
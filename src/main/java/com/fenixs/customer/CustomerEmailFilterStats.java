@@ -0,0 +1,10 @@
+package com.fenixs.customer;
+
+public record CustomerEmailFilterStats(
+        boolean ready,
+        long entries,
+        long sizeInBytes,
+        int hashFunctions,
+        double falsePositiveRate
+) {
+}
@@ -1,5 +1,6 @@
 package com.fenixs.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -18,11 +19,17 @@ import lombok.*;
 )
 public class CustomerEntity {
 
+    /**
+     * Ids Hibernate takes from one {@code nextval}, must equal the increment of customer_id_seq (V6).
+     * Plain SQL inserts still take one value each, they just leave gaps.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1
+            allocationSize = ID_ALLOCATION_SIZE
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -42,5 +49,38 @@ public class CustomerEntity {
     @NonNull
     private Integer age;
 
+    /**
+     * Bumped on every change and served as the customer's ETag, never as part of the body.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
+
+    public CustomerEntity(Long id, @NonNull String name, @NonNull String email, @NonNull Integer age) {
+        this(id, name, email, age, null);
+    }
 
+    /**
+     * Copies the non null properties of {@code changes} onto this customer.
+     *
+     * @return whether any property actually changed
+     */
+    boolean applyChanges(CustomerEntity changes) {
+        boolean changed = false;
+        if (changes.getName() != null && !changes.getName().equals(name)) {
+            name = changes.getName();
+            changed = true;
+        }
+        if (changes.getEmail() != null && !changes.getEmail().equals(email)) {
+            email = changes.getEmail();
+            changed = true;
+        }
+        if (changes.getAge() != null && !changes.getAge().equals(age)) {
+            age = changes.getAge();
+            changed = true;
+        }
+        return changed;
+    }
 }
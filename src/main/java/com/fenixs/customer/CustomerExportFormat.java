@@ -0,0 +1,27 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.RequestValidationException;
+
+public enum CustomerExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    CustomerExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public static CustomerExportFormat from(String format) {
+        for (CustomerExportFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unsupported export format [%s]".formatted(format));
+    }
+}
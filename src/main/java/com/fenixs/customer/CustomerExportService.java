@@ -0,0 +1,88 @@
+package com.fenixs.customer;
+
+import com.fenixs.ReplicaRead;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CustomerExportService {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CustomerDao customerDao;
+    private final ObjectMapper objectMapper;
+
+    public CustomerExportService(@Qualifier("jdbc") CustomerDao customerDao, ObjectMapper objectMapper) {
+        this.customerDao = customerDao;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every customer to the given stream row by row, so memory use does not depend on the table size.
+     * Served by a replica when there is one.
+     */
+    @ReplicaRead
+    public void exportCustomers(CustomerExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        switch (format) {
+            case NDJSON -> writeNdjson(writer);
+            case CSV -> writeCsv(writer);
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Writer writer) throws IOException {
+        SequenceWriter sequenceWriter = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(writer);
+        AtomicLong rows = new AtomicLong();
+        customerDao.streamAllCustomers(customer -> {
+            try {
+                sequenceWriter.write(customer);
+                rows.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        sequenceWriter.flush();
+        if (rows.get() > 0) {
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        writer.write("id,name,email,age\n");
+        customerDao.streamAllCustomers(customer -> {
+            try {
+                writer.write(String.valueOf(customer.getId()));
+                writer.write(',');
+                writer.write(escapeCsv(customer.getName()));
+                writer.write(',');
+                writer.write(escapeCsv(customer.getEmail()));
+                writer.write(',');
+                writer.write(String.valueOf(customer.getAge()));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
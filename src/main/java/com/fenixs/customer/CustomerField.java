@@ -0,0 +1,58 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.RequestValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Customer properties a client can ask for with {@code ?fields=}. The id is always included,
+ * it is the keyset cursor.
+ */
+public enum CustomerField {
+    ID,
+    NAME,
+    EMAIL,
+    AGE;
+
+    public static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    public String column() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Parses a comma separated field list; a missing or blank list selects every field.
+     */
+    public static Set<CustomerField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<CustomerField> parsed = EnumSet.of(ID);
+        for (String field : fields.split(",")) {
+            String name = field.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            parsed.add(from(name));
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    private static CustomerField from(String field) {
+        for (CustomerField value : values()) {
+            if (value.name().equalsIgnoreCase(field)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unknown field [%s]".formatted(field));
+    }
+
+    static String columns(Set<CustomerField> fields) {
+        return fields.stream()
+                .map(CustomerField::column)
+                .collect(Collectors.joining(", "));
+    }
+}
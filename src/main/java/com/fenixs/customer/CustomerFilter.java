@@ -0,0 +1,36 @@
+package com.fenixs.customer;
+
+/**
+ * Optional restrictions on the customer list; null properties do not restrict.
+ * The email domain is compared case-insensitively.
+ */
+public record CustomerFilter(
+        Integer minAge,
+        Integer maxAge,
+        String emailDomain
+) {
+
+    public static final CustomerFilter NONE = new CustomerFilter(null, null, null);
+
+    public boolean isEmpty() {
+        return minAge == null && maxAge == null && emailDomain == null;
+    }
+
+    public boolean matches(CustomerEntity customer) {
+        return (minAge == null || customer.getAge() >= minAge)
+                && (maxAge == null || customer.getAge() <= maxAge)
+                && (emailDomain == null || emailDomain.equalsIgnoreCase(emailDomain(customer.getEmail())));
+    }
+
+    /**
+     * Mirrors the indexed {@code lower(split_part(email, '@', 2))} expression, without the lower.
+     */
+    static String emailDomain(String email) {
+        int at = email.indexOf('@');
+        if (at < 0) {
+            return "";
+        }
+        int end = email.indexOf('@', at + 1);
+        return email.substring(at + 1, end < 0 ? email.length() : end);
+    }
+}
@@ -0,0 +1,11 @@
+package com.fenixs.customer;
+
+public record CustomerImportReport(
+        long rowsRead,
+        long inserted,
+        long duplicates,
+        long rejected,
+        long elapsedMillis,
+        double rowsPerSecond
+) {
+}
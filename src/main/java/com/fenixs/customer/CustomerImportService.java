@@ -0,0 +1,173 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.RequestValidationException;
+import org.postgresql.PGConnection;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class CustomerImportService {
+
+    private static final String VALID_ROW = """
+            coalesce(trim(name), '') <> ''
+            AND coalesce(trim(email), '') <> ''
+            AND age ~ '^\\s*[0-9]{1,9}\\s*$'
+            """;
+
+    // COPY reports where it stopped as "COPY customer_import, line 42[, column ...]"
+    private static final Pattern COPY_LINE = Pattern.compile("line (\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatistics customerStatistics;
+    private final CustomerResponseCache customerResponseCache;
+
+    public CustomerImportService(JdbcTemplate jdbcTemplate,
+                                 CustomerEmailFilter customerEmailFilter,
+                                 CustomerStatistics customerStatistics,
+                                 CustomerResponseCache customerResponseCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerStatistics = customerStatistics;
+        this.customerResponseCache = customerResponseCache;
+    }
+
+    /**
+     * Streams a name,email,age CSV into a session scoped staging table with COPY and merges the valid rows
+     * into customer in a single statement. Rows with a missing field or a non numeric age are rejected,
+     * emails repeated in the file or already present in customer are counted as duplicates.
+     * <p>
+     * A line COPY cannot parse (a wrong number of columns, an unterminated quote, bytes that are not
+     * UTF-8) aborts the whole import with a {@link RequestValidationException} naming the line, and
+     * nothing is inserted.
+     * <p>
+     * The inserted rows are read back from the merge and folded into the email filter and statistics one by
+     * one, like any other registration, so an import costs no scan of the customer table.
+     */
+    public CustomerImportReport importCustomers(InputStream csv, boolean header) {
+        long start = System.nanoTime();
+        CustomerImportReport report = customerStatistics.recording(() -> jdbcTemplate.execute(
+                (ConnectionCallback<CustomerImportReport>) connection -> importInto(connection, csv, header, start)));
+        if (report != null && report.inserted() > 0) {
+            customerResponseCache.invalidatePages();
+        }
+        return report;
+    }
+
+    private CustomerImportReport importInto(Connection connection, InputStream csv, boolean header, long start)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS customer_import");
+            statement.execute("""
+                    CREATE TEMP TABLE customer_import (
+                        line BIGSERIAL,
+                        name TEXT,
+                        email TEXT,
+                        age TEXT
+                    )
+                    """);
+        }
+        try {
+            return merge(connection, csv, header, start, customer -> {
+                customerEmailFilter.add(customer.getEmail());
+                customerStatistics.added(customer);
+            });
+        } finally {
+            // temp tables live as long as the session, which for a pooled connection is far longer than the request
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS customer_import");
+            }
+        }
+    }
+
+    private static CustomerImportReport merge(Connection connection,
+                                              InputStream csv,
+                                              boolean header,
+                                              long start,
+                                              Consumer<CustomerEntity> inserted)
+            throws SQLException {
+        long rowsRead = copyIn(connection, csv, header);
+
+        long rejected;
+        long insertedRows = 0;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE customer_import");
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT count(*) FROM customer_import WHERE NOT (" + VALID_ROW + ")")) {
+                rs.next();
+                rejected = rs.getLong(1);
+            }
+            // the connection autocommits and pgjdbc reads the whole result before returning it,
+            // so the rows handed on below are committed already
+            try (ResultSet rs = statement.executeQuery("""
+                    INSERT INTO customer(name, email, age)
+                    SELECT name, email, age
+                    FROM (
+                        SELECT DISTINCT ON (trim(email)) trim(name) AS name, trim(email) AS email, trim(age)::int AS age
+                        FROM customer_import
+                        WHERE %s
+                        ORDER BY trim(email), line
+                    ) AS valid
+                    ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                    RETURNING name, email, age
+                    """.formatted(VALID_ROW))) {
+                while (rs.next()) {
+                    inserted.accept(new CustomerEntity(rs.getString("name"), rs.getString("email"), rs.getInt("age")));
+                    insertedRows++;
+                }
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        return new CustomerImportReport(
+                rowsRead,
+                insertedRows,
+                rowsRead - rejected - insertedRows,
+                rejected,
+                elapsedNanos / 1_000_000,
+                elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000d / elapsedNanos
+        );
+    }
+
+    private static long copyIn(Connection connection, InputStream csv, boolean header) throws SQLException {
+        var sql = "COPY customer_import (name, email, age) FROM STDIN WITH (FORMAT csv, HEADER %s)"
+                .formatted(header);
+        try {
+            return connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(sql, csv);
+        } catch (PSQLException e) {
+            // SQLSTATE class 22 is a data exception, the file itself is broken
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new RequestValidationException(malformed(e.getServerErrorMessage()));
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String malformed(ServerErrorMessage error) {
+        if (error == null) {
+            return "malformed CSV";
+        }
+        Matcher line = COPY_LINE.matcher(error.getWhere() == null ? "" : error.getWhere());
+        return line.find()
+                ? "malformed CSV at line %s: %s".formatted(line.group(1), error.getMessage())
+                : "malformed CSV: %s".formatted(error.getMessage());
+    }
+}
@@ -2,14 +2,28 @@ package com.fenixs.customer;
 
 
 
+import com.fenixs.exception.DuplicateResourceException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper rowMapper;
 
@@ -22,17 +36,104 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public List<CustomerEntity> selectAllCustomers() {
         var sql = """
-                SELECT id, name, email, age
+                SELECT id, name, email, age, version
                 FROM customer
                 """;
 
         return jdbcTemplate.query(sql, rowMapper);
     }
 
+    @Override
+    public List<CustomerEntity> selectCustomersPage(Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, rowMapper, afterId, limit);
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersPage(CustomerFilter filter, Long afterId, int limit) {
+        var query = CustomerPageQuery.of("id, name, email, age, version", filter, afterId, limit);
+        return jdbcTemplate.query(query.sql(), rowMapper, query.args().toArray());
+    }
+
+    @Override
+    public void streamCustomersPage(CustomerFilter filter, Long afterId, int limit, CustomerRowHandler handler) {
+        var query = CustomerPageQuery.of("id, name, email, age", filter, afterId, limit);
+        // pgjdbc always talks UTF-8 to the server and hands back the raw column bytes for text types
+        jdbcTemplate.query(query.sql(),
+                (RowCallbackHandler) rs -> handler.row(rs.getLong(1), rs.getBytes(2), rs.getBytes(3), rs.getInt(4)),
+                query.args().toArray());
+    }
+
+    /**
+     * Selects only the requested columns, so unused ones are neither read nor sent over the wire.
+     */
+    @Override
+    public List<CustomerView> selectCustomerViewsPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit) {
+        var query = CustomerPageQuery.of(CustomerField.columns(fields), filter, afterId, limit);
+        return jdbcTemplate.query(query.sql(), new CustomerViewRowMapper(fields), query.args().toArray());
+    }
+
+    /**
+     * Served by the trigram index on name for prefix and substring terms alike.
+     */
+    @Override
+    public List<CustomerEntity> selectCustomersByName(String name, CustomerNameMatch match, Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE name ILIKE ?
+                  AND id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, rowMapper, match.likePattern(name), afterId, limit);
+    }
+
+    /**
+     * pgjdbc only opens a server side cursor when autocommit is off and a fetch size is set,
+     * hence the read only transaction: rows are pulled {@value #STREAM_FETCH_SIZE} at a time
+     * instead of materializing the whole result set.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<CustomerEntity> action) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                ORDER BY id
+                """;
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public long estimateCustomerCount() {
+        // planner statistics instead of count(*), which would scan the table; reltuples is -1 until the first analyze
+        var sql = """
+                SELECT CASE WHEN reltuples < 0 THEN (SELECT count(*) FROM customer) ELSE reltuples::bigint END
+                FROM pg_class
+                WHERE oid = 'customer'::regclass
+                """;
+
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
     @Override
     public Optional<CustomerEntity> selectCustomerById(Long id) {
         var sql = """
-                SELECT id, name, email, age
+                SELECT id, name, email, age, version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -43,14 +144,53 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void insertCustomer(CustomerEntity customerEntity) {
+    public List<CustomerEntity> selectCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id = ANY(?)
+                """;
+        return jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rowMapper
+        );
+    }
+
+    /**
+     * Inserts the customer unless its email is already taken, in which case no id is returned.
+     */
+    @Override
+    public Optional<Long> insertCustomer(CustomerEntity customerEntity) {
+        var sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES (?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("id"),
+                        customerEntity.getName(), customerEntity.getEmail(), customerEntity.getAge())
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * With pgjdbc's reWriteBatchedInserts every batch is sent as one multi-row INSERT.
+     */
+    @Override
+    public void insertCustomers(List<CustomerEntity> customerEntities) {
         var sql = """
                 INSERT INTO customer(name, email, age)
-                VALUES (?, ? ,?)
+                VALUES (?, ?, ?)
                 """;
-        int insertResult = jdbcTemplate.update(sql, customerEntity.getName(), customerEntity.getEmail(), customerEntity.getAge());
-        if (insertResult == 1)
-            System.out.println("Insert customer successfully.");
+        jdbcTemplate.batchUpdate(sql, customerEntities, INSERT_BATCH_SIZE, (ps, customer) -> {
+            ps.setString(1, customer.getName());
+            ps.setString(2, customer.getEmail());
+            ps.setInt(3, customer.getAge());
+        });
     }
 
     @Override
@@ -76,44 +216,157 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomer(CustomerEntity updateObject) {
-        Long id = updateObject.getId();
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY(?)
+                """;
+        List<String> existing = jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                (rs, rowNum) -> rs.getString("email")
+        );
+        return new HashSet<>(existing);
+    }
+
+    /**
+     * Applies the non null properties of {@code updateObject} in a single statement. Rows whose values
+     * would not change are left untouched, so an empty result means the id is unknown or nothing changed.
+     */
+    @Override
+    public Optional<CustomerChange> updateCustomer(CustomerEntity updateObject) {
+        // the locked self join hands back the row as it was before the update in the same round trip
+        var sql = """
+                UPDATE customer c
+                SET name = COALESCE(?::text, c.name),
+                    email = COALESCE(?::text, c.email),
+                    age = COALESCE(?::int, c.age),
+                    version = c.version + 1
+                FROM (SELECT id, name, email, age, version FROM customer WHERE id = ? FOR UPDATE) previous
+                WHERE c.id = previous.id
+                  AND (?::bigint IS NULL OR c.version = ?::bigint)
+                  AND (c.name, c.email, c.age) IS DISTINCT FROM (COALESCE(?::text, c.name), COALESCE(?::text, c.email), COALESCE(?::int, c.age))
+                RETURNING c.id, c.name, c.email, c.age, c.version,
+                          previous.name AS previous_name, previous.email AS previous_email,
+                          previous.age AS previous_age, previous.version AS previous_version
+                """;
         String name = updateObject.getName();
         String email = updateObject.getEmail();
         Integer age = updateObject.getAge();
-
-        if (name != null) {
-            String sql = "UPDATE customer SET name = ? WHERE id = ?";
-            int updateResult = jdbcTemplate.update(sql, name, id);
-            if (updateResult == 1)
-                System.out.println("update customer name successfully.");
+        Long version = updateObject.getVersion();
+        try {
+            return jdbcTemplate.query(sql, (rs, rowNum) -> new CustomerChange(
+                            new CustomerEntity(
+                                    rs.getLong("id"),
+                                    rs.getString("previous_name"),
+                                    rs.getString("previous_email"),
+                                    rs.getInt("previous_age"),
+                                    rs.getLong("previous_version")
+                            ),
+                            rowMapper.mapRow(rs, rowNum)
+                    ), name, email, age, updateObject.getId(), version, version, name, email, age)
+                    .stream()
+                    .findFirst();
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email already taken");
         }
+    }
 
-        if (email != null) {
-            String sql = "UPDATE customer SET email = ? WHERE id = ?";
-            int updateResult = jdbcTemplate.update(sql, email, id);
-            if (updateResult == 1)
-                System.out.println("update customer email successfully.");
-        }
+    @Override
+    public Optional<CustomerEntity> deleteCustomerById(Long id) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = ?
+                RETURNING id, name, email, age, version
+                """;
+        return jdbcTemplate.query(sql, rowMapper, id)
+                .stream()
+                .findFirst();
+    }
 
-        if (age != null) {
-            String sql = "UPDATE customer SET age = ? WHERE id = ?";
-            int updateResult = jdbcTemplate.update(sql, age, id);
-            if (updateResult == 1)
-                System.out.println("update customer age successfully.");
+    /**
+     * All the changes go out as arrays joined through {@code unnest}, one statement and round trip for the
+     * whole list. The rows are locked in id order, so concurrent bulk updates cannot deadlock each other.
+     */
+    @Override
+    public List<CustomerChange> updateCustomers(List<CustomerEntity> updateObjects) {
+        if (updateObjects.isEmpty()) {
+            return List.of();
+        }
+        var sql = """
+                UPDATE customer c
+                SET name = COALESCE(u.name, c.name),
+                    email = COALESCE(u.email, c.email),
+                    age = COALESCE(u.age, c.age),
+                    version = c.version + 1
+                FROM unnest(?::bigint[], ?::text[], ?::text[], ?::int[]) AS u(id, name, email, age)
+                JOIN (SELECT id, name, email, age, version FROM customer WHERE id = ANY(?) ORDER BY id FOR UPDATE) previous
+                    ON previous.id = u.id
+                WHERE c.id = u.id
+                  AND (c.name, c.email, c.age) IS DISTINCT FROM (COALESCE(u.name, c.name), COALESCE(u.email, c.email), COALESCE(u.age, c.age))
+                RETURNING c.id, c.name, c.email, c.age, c.version,
+                          previous.name AS previous_name, previous.email AS previous_email,
+                          previous.age AS previous_age, previous.version AS previous_version
+                """;
+        Object[] ids = updateObjects.stream().map(CustomerEntity::getId).toArray();
+        Object[] names = updateObjects.stream().map(CustomerEntity::getName).toArray();
+        Object[] emails = updateObjects.stream().map(CustomerEntity::getEmail).toArray();
+        Object[] ages = updateObjects.stream().map(CustomerEntity::getAge).toArray();
+        try {
+            return jdbcTemplate.query(sql, ps -> {
+                Connection connection = ps.getConnection();
+                ps.setArray(1, connection.createArrayOf("bigint", ids));
+                ps.setArray(2, connection.createArrayOf("text", names));
+                ps.setArray(3, connection.createArrayOf("text", emails));
+                ps.setArray(4, connection.createArrayOf("int4", ages));
+                ps.setArray(5, connection.createArrayOf("bigint", ids));
+            }, (rs, rowNum) -> new CustomerChange(
+                    new CustomerEntity(
+                            rs.getLong("id"),
+                            rs.getString("previous_name"),
+                            rs.getString("previous_email"),
+                            rs.getInt("previous_age"),
+                            rs.getLong("previous_version")
+                    ),
+                    rowMapper.mapRow(rs, rowNum)
+            ));
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email already taken");
         }
     }
 
     @Override
-    public void deleteCustomerById(Long id) {
+    public List<CustomerEntity> deleteCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
         var sql = """
-                DELETE 
+                DELETE
                 FROM customer
-                WHERE id = ?
+                WHERE id IN (SELECT id FROM customer WHERE id = ANY(?) ORDER BY id FOR UPDATE)
+                RETURNING id, name, email, age, version
                 """;
-        int deleteResult = jdbcTemplate.update(sql, id);
-        if (deleteResult == 1)
-            System.out.println("Delete customer successfully.");
+        return jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rowMapper
+        );
+    }
 
+    @Override
+    public List<CustomerEntity> deleteCustomers(CustomerFilter filter, int limit) {
+        var query = CustomerPageQuery.of("id", filter, 0L, limit, true);
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id IN (%s)
+                RETURNING id, name, email, age, version
+                """.formatted(query.sql());
+        return jdbcTemplate.query(sql, rowMapper, query.args().toArray());
     }
 }
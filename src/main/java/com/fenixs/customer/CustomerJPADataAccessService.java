@@ -1,33 +1,122 @@
 package com.fenixs.customer;
 
 
+import com.fenixs.exception.DuplicateResourceException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
 
+    static final int INSERT_CHUNK_SIZE = 1000;
+
     private final CustomerRepository customerRepository;
 
     public CustomerJPADataAccessService(CustomerRepository customerRepository) {
         this.customerRepository = customerRepository;
     }
 
+    /**
+     * Reads run without a transaction and return customers built by constructor projections, which are
+     * never managed, or loaded with the read-only hint, so nothing is snapshotted or dirty checked.
+     */
     @Override
     public List<CustomerEntity> selectAllCustomers() {
-        return customerRepository.findAll();
+        return customerRepository.findAllDetached();
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersPage(Long afterId, int limit) {
+        return customerRepository.findPageDetached(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersPage(CustomerFilter filter, Long afterId, int limit) {
+        return customerRepository.findPage(filter, afterId, limit);
+    }
+
+    @Override
+    public void streamCustomersPage(CustomerFilter filter, Long afterId, int limit, CustomerRowHandler handler) {
+        selectCustomersPage(filter, afterId, limit).forEach(customer -> handler.row(
+                customer.getId(),
+                customer.getName().getBytes(StandardCharsets.UTF_8),
+                customer.getEmail().getBytes(StandardCharsets.UTF_8),
+                customer.getAge()
+        ));
+    }
+
+    @Override
+    public List<CustomerView> selectCustomerViewsPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit) {
+        return customerRepository.findViewPage(filter, fields, afterId, limit);
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersByName(String name, CustomerNameMatch match, Long afterId, int limit) {
+        return customerRepository.searchByName(match.likePattern(name), afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<CustomerEntity> action) {
+        try (Stream<CustomerEntity> customers = customerRepository.streamAllCustomers()) {
+            customers.forEach(action);
+        }
+    }
+
+    @Override
+    public long estimateCustomerCount() {
+        return customerRepository.estimateCount();
     }
 
     @Override
     public Optional<CustomerEntity> selectCustomerById(Long id) {
-        return customerRepository.findById(id);
+        return customerRepository.findByIdDetached(id);
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return customerRepository.findAllByIdDetached(ids);
     }
 
     @Override
-    public void insertCustomer(CustomerEntity customerEntity) {
-        customerRepository.save(customerEntity);
+    public Optional<Long> insertCustomer(CustomerEntity customerEntity) {
+        return customerRepository.insertIfEmailAbsent(
+                customerEntity.getName(),
+                customerEntity.getEmail(),
+                customerEntity.getAge()
+        );
+    }
+
+    /**
+     * With pooled ids the inserts go out as JDBC batches (hibernate.jdbc.batch_size) without a sequence round
+     * trip per row. The persistence context is flushed and cleared every {@value #INSERT_CHUNK_SIZE}
+     * customers so it does not grow with the request, all of it in one transaction.
+     */
+    @Override
+    @Transactional
+    public void insertCustomers(List<CustomerEntity> customerEntities) {
+        for (int from = 0; from < customerEntities.size(); from += INSERT_CHUNK_SIZE) {
+            int to = Math.min(from + INSERT_CHUNK_SIZE, customerEntities.size());
+            customerRepository.saveAll(customerEntities.subList(from, to));
+            customerRepository.flushAndClear();
+        }
     }
 
     @Override
@@ -41,12 +130,82 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomer(CustomerEntity updateObject) {
-        customerRepository.save(updateObject);
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return customerRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    @Transactional
+    public Optional<CustomerChange> updateCustomer(CustomerEntity updateObject) {
+        try {
+            return customerRepository.findById(updateObject.getId())
+                    .filter(customer -> updateObject.getVersion() == null
+                            || updateObject.getVersion().equals(customer.getVersion()))
+                    .flatMap(customer -> {
+                        CustomerEntity previous = new CustomerEntity(customer.getId(), customer.getName(),
+                                customer.getEmail(), customer.getAge(), customer.getVersion());
+                        if (!customer.applyChanges(updateObject)) {
+                            return Optional.empty();
+                        }
+                        return Optional.of(new CustomerChange(previous, customerRepository.saveAndFlush(customer)));
+                    });
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+    }
+
+    /**
+     * Loads the customers with one query and flushes the changed ones as JDBC batches (order_updates).
+     */
+    @Override
+    @Transactional
+    public List<CustomerChange> updateCustomers(List<CustomerEntity> updateObjects) {
+        if (updateObjects.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CustomerEntity> customers = customerRepository
+                .findAllById(updateObjects.stream().map(CustomerEntity::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(CustomerEntity::getId, Function.identity()));
+        List<CustomerChange> changes = new ArrayList<>();
+        for (CustomerEntity updateObject : updateObjects) {
+            CustomerEntity customer = customers.get(updateObject.getId());
+            if (customer == null) {
+                continue;
+            }
+            CustomerEntity previous = new CustomerEntity(customer.getId(), customer.getName(),
+                    customer.getEmail(), customer.getAge(), customer.getVersion());
+            if (customer.applyChanges(updateObject)) {
+                changes.add(new CustomerChange(previous, customer));
+            }
+        }
+        try {
+            customerRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+        return changes;
+    }
+
+    @Override
+    public Optional<CustomerEntity> deleteCustomerById(Long id) {
+        return customerRepository.deleteReturning(id);
+    }
+
+    @Override
+    public List<CustomerEntity> deleteCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return customerRepository.deleteAllReturning(ids);
     }
 
     @Override
-    public void deleteCustomerById(Long id) {
-        customerRepository.deleteById(id);
+    @Transactional
+    public List<CustomerEntity> deleteCustomers(CustomerFilter filter, int limit) {
+        return customerRepository.deletePage(filter, limit);
     }
 }
@@ -0,0 +1,105 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a {@link CustomerPage} document straight from {@link CustomerDao#streamCustomersPage}, without
+ * building entities, a list or going through bean serialization. Field names are pre-encoded and text
+ * columns are copied as the UTF-8 bytes the DAO hands over, so with the JDBC DAO most of the per row
+ * garbage is what the driver allocates itself. The generator buffers come from Jackson's buffer recycler and are returned to it on close.
+ */
+@Component
+public class CustomerJsonWriter {
+
+    private static final SerializedString CUSTOMERS = new SerializedString("customers");
+    private static final SerializedString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString AGE = new SerializedString("age");
+
+    private final CustomerDao customerDao;
+    private final JsonFactory jsonFactory;
+
+    public CustomerJsonWriter(@Qualifier("jdbc") CustomerDao customerDao, ObjectMapper objectMapper) {
+        this.customerDao = customerDao;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Writes the page after {@code afterId}, byte for byte the same document Jackson produces for the
+     * {@link CustomerPage} {@link CustomerService#toPage} builds from the same rows.
+     * The stream is flushed but not closed.
+     */
+    public void writePage(CustomerFilter filter, Long afterId, int limit, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.writeStartObject();
+            generator.writeFieldName(CUSTOMERS);
+            generator.writeStartArray();
+            PageRowWriter rows = new PageRowWriter(generator, limit);
+            try {
+                customerDao.streamCustomersPage(filter, afterId, limit + 1, rows);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+            generator.writeFieldName(NEXT_CURSOR);
+            if (rows.hasMore) {
+                generator.writeString(CustomerService.encodeCursor(rows.lastId));
+            } else {
+                generator.writeNull();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static final class PageRowWriter implements CustomerRowHandler {
+
+        private final JsonGenerator generator;
+        private final int limit;
+        private int rows;
+        private long lastId;
+        private boolean hasMore;
+
+        private PageRowWriter(JsonGenerator generator, int limit) {
+            this.generator = generator;
+            this.limit = limit;
+        }
+
+        @Override
+        public void row(long id, byte[] name, byte[] email, int age) {
+            if (rows == limit) {
+                // the extra row only tells us another page exists
+                hasMore = true;
+                return;
+            }
+            try {
+                generator.writeStartObject();
+                generator.writeFieldName(ID);
+                generator.writeNumber(id);
+                generator.writeFieldName(NAME);
+                generator.writeUTF8String(name, 0, name.length);
+                generator.writeFieldName(EMAIL);
+                generator.writeUTF8String(email, 0, email.length);
+                generator.writeFieldName(AGE);
+                generator.writeNumber(age);
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastId = id;
+            rows++;
+        }
+    }
+}
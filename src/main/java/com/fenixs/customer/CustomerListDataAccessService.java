@@ -1,62 +1,266 @@
 package com.fenixs.customer;
 
+import com.fenixs.exception.DuplicateResourceException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Thread safe in-memory store. Customers are kept in an id keyed map with a secondary email index,
+ * both giving O(1) lookups, and an ordered id set for keyset pagination. The email index is the
+ * source of truth for uniqueness: an email is reserved with putIfAbsent before the customer is
+ * published. Stored entities are never mutated, updates replace them with a new instance.
+ */
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    private static final List<CustomerEntity> customers;
+    private final ConcurrentMap<Long, CustomerEntity> customers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong();
 
-    static {
-        customers = new ArrayList<>();
-
-        CustomerEntity alex = new CustomerEntity( "Alex", "alex@gmail.com", 21);
-        CustomerEntity jamila = new CustomerEntity("jamila", "jamila@gmail.com", 19);
-        customers.add(alex);
-        customers.add(jamila);
+    public CustomerListDataAccessService() {
+        insertCustomer(new CustomerEntity("Alex", "alex@gmail.com", 21));
+        insertCustomer(new CustomerEntity("jamila", "jamila@gmail.com", 19));
     }
 
     @Override
     public List<CustomerEntity> selectAllCustomers() {
-        return customers;
+        return orderedCustomers(ids.stream()).toList();
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersPage(Long afterId, int limit) {
+        return orderedCustomers(ids.tailSet(afterId, false).stream())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersPage(CustomerFilter filter, Long afterId, int limit) {
+        return orderedCustomers(ids.tailSet(afterId, false).stream())
+                .filter(filter::matches)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamCustomersPage(CustomerFilter filter, Long afterId, int limit, CustomerRowHandler handler) {
+        selectCustomersPage(filter, afterId, limit).forEach(customer -> handler.row(
+                customer.getId(),
+                customer.getName().getBytes(StandardCharsets.UTF_8),
+                customer.getEmail().getBytes(StandardCharsets.UTF_8),
+                customer.getAge()
+        ));
+    }
+
+    @Override
+    public List<CustomerView> selectCustomerViewsPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit) {
+        return selectCustomersPage(filter, afterId, limit).stream()
+                .map(customer -> CustomerView.of(customer, fields))
+                .toList();
+    }
+
+    @Override
+    public List<CustomerEntity> selectCustomersByName(String name, CustomerNameMatch match, Long afterId, int limit) {
+        return orderedCustomers(ids.tailSet(afterId, false).stream())
+                .filter(customer -> match.matches(customer.getName(), name))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<CustomerEntity> action) {
+        orderedCustomers(ids.stream()).forEach(action);
+    }
+
+    @Override
+    public long estimateCustomerCount() {
+        return customers.size();
     }
 
     @Override
     public Optional<CustomerEntity> selectCustomerById(Long id) {
-        return customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(customers.get(id));
     }
 
     @Override
-    public void insertCustomer(CustomerEntity customerEntity) {
-        customers.add(customerEntity);
+    public List<CustomerEntity> selectCustomersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Optional<Long> insertCustomer(CustomerEntity customerEntity) {
+        Long id = sequence.incrementAndGet();
+        if (emailIndex.putIfAbsent(customerEntity.getEmail(), id) != null) {
+            return Optional.empty();
+        }
+        publish(new CustomerEntity(id, customerEntity.getName(), customerEntity.getEmail(), customerEntity.getAge(), 0L));
+        return Optional.of(id);
+    }
+
+    @Override
+    public void insertCustomers(List<CustomerEntity> customerEntities) {
+        List<CustomerEntity> reserved = new ArrayList<>(customerEntities.size());
+        for (CustomerEntity customer : customerEntities) {
+            Long id = sequence.incrementAndGet();
+            if (emailIndex.putIfAbsent(customer.getEmail(), id) != null) {
+                // behave like the batch insert: all or nothing
+                reserved.forEach(c -> emailIndex.remove(c.getEmail(), c.getId()));
+                throw new DuplicateKeyException("email [%s] already taken".formatted(customer.getEmail()));
+            }
+            reserved.add(new CustomerEntity(id, customer.getName(), customer.getEmail(), customer.getAge(), 0L));
+        }
+        reserved.forEach(this::publish);
     }
 
     @Override
     public boolean existPersonWithId(Long id) {
-        return customers.stream().anyMatch(c -> c.getId().equals(id));
+        return customers.containsKey(id);
     }
 
     @Override
     public boolean existPersonWithEmail(String email) {
-        return customers.stream().anyMatch(c -> c.getEmail().equals(email));
+        return emailIndex.containsKey(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(emailIndex::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Runs under the customer's map entry lock, so concurrent writers of the same customer cannot release
+     * or overwrite an email reservation another of them is about to publish.
+     */
+    @Override
+    public Optional<CustomerChange> updateCustomer(CustomerEntity updateObject) {
+        Long id = updateObject.getId();
+        CustomerChange[] change = new CustomerChange[1];
+        customers.computeIfPresent(id, (key, current) -> {
+            if (updateObject.getVersion() != null && !updateObject.getVersion().equals(current.getVersion())) {
+                return current;
+            }
+            CustomerEntity updated = new CustomerEntity(
+                    id, current.getName(), current.getEmail(), current.getAge(), current.getVersion() + 1);
+            if (!updated.applyChanges(updateObject)) {
+                return current;
+            }
+            if (!updated.getEmail().equals(current.getEmail())) {
+                // owned by this customer already when updateCustomers reserved it
+                Long owner = emailIndex.putIfAbsent(updated.getEmail(), id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new DuplicateResourceException("Email already taken");
+                }
+                emailIndex.remove(current.getEmail(), id);
+            }
+            change[0] = new CustomerChange(current, updated);
+            return updated;
+        });
+        return Optional.ofNullable(change[0]);
     }
 
     @Override
-    public void updateCustomer(CustomerEntity updateObject) {
-        customers.add(updateObject);
+    public Optional<CustomerEntity> deleteCustomerById(Long id) {
+        CustomerEntity removed = customers.remove(id);
+        if (removed != null) {
+            ids.remove(id);
+            emailIndex.remove(removed.getEmail(), id);
+        }
+        return Optional.ofNullable(removed);
     }
 
+    /**
+     * All or nothing like {@link #insertCustomers}: every new email is reserved before the first customer is
+     * replaced, and a taken one releases the reservations made so far. Only reservations made here are
+     * released, and only the ones the customers do not hold afterwards, e.g. because the customer was
+     * deleted meanwhile.
+     */
     @Override
-    public void deleteCustomerById(Long id) {
-        customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .ifPresent(customers::remove);
+    public List<CustomerChange> updateCustomers(List<CustomerEntity> updateObjects) {
+        boolean[] reserved = new boolean[updateObjects.size()];
+        for (int i = 0; i < updateObjects.size(); i++) {
+            CustomerEntity updateObject = updateObjects.get(i);
+            if (updateObject.getEmail() == null || !customers.containsKey(updateObject.getId())) {
+                continue;
+            }
+            Long owner = emailIndex.putIfAbsent(updateObject.getEmail(), updateObject.getId());
+            if (owner == null) {
+                reserved[i] = true;
+            } else if (!owner.equals(updateObject.getId())) {
+                release(updateObjects, reserved);
+                throw new DuplicateResourceException("Email already taken");
+            }
+        }
+
+        List<CustomerChange> changes = new ArrayList<>();
+        for (CustomerEntity updateObject : updateObjects) {
+            updateCustomer(updateObject).ifPresent(changes::add);
+        }
+        release(updateObjects, reserved);
+        return changes;
+    }
+
+    // keeps the reservations the customers now hold. Checked under the customer's entry lock, a concurrent
+    // updateCustomer could otherwise take over a reservation between the check and the removal
+    private void release(List<CustomerEntity> updateObjects, boolean[] reserved) {
+        for (int i = 0; i < updateObjects.size(); i++) {
+            if (!reserved[i]) {
+                continue;
+            }
+            Long id = updateObjects.get(i).getId();
+            String email = updateObjects.get(i).getEmail();
+            customers.compute(id, (key, current) -> {
+                if (current == null || !current.getEmail().equals(email)) {
+                    emailIndex.remove(email, id);
+                }
+                return current;
+            });
+        }
+    }
+
+    @Override
+    public List<CustomerEntity> deleteCustomersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(this::deleteCustomerById)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public List<CustomerEntity> deleteCustomers(CustomerFilter filter, int limit) {
+        return selectCustomersPage(filter, 0L, limit).stream()
+                .map(customer -> deleteCustomerById(customer.getId()))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private void publish(CustomerEntity customer) {
+        customers.put(customer.getId(), customer);
+        ids.add(customer.getId());
+    }
+
+    private Stream<CustomerEntity> orderedCustomers(Stream<Long> orderedIds) {
+        return orderedIds.map(customers::get)
+                .filter(Objects::nonNull);
     }
 }
@@ -0,0 +1,42 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.RequestValidationException;
+
+/**
+ * How a name search term is matched, always ignoring case.
+ */
+public enum CustomerNameMatch {
+    PREFIX,
+    CONTAINS;
+
+    public static CustomerNameMatch from(String match) {
+        for (CustomerNameMatch value : values()) {
+            if (value.name().equalsIgnoreCase(match)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unsupported name match [%s]".formatted(match));
+    }
+
+    /**
+     * Returns the LIKE pattern for the term, with its wildcards escaped by a backslash.
+     */
+    public String likePattern(String term) {
+        String escaped = term.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return switch (this) {
+            case PREFIX -> escaped + "%";
+            case CONTAINS -> "%" + escaped + "%";
+        };
+    }
+
+    public boolean matches(String name, String term) {
+        String lowerName = name.toLowerCase();
+        String lowerTerm = term.toLowerCase();
+        return switch (this) {
+            case PREFIX -> lowerName.startsWith(lowerTerm);
+            case CONTAINS -> lowerName.contains(lowerTerm);
+        };
+    }
+}
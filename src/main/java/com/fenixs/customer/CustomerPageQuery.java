@@ -0,0 +1,50 @@
+package com.fenixs.customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL for one keyset page of the customers matching a {@link CustomerFilter}. Only the conditions of the
+ * filter that are set become part of the statement, so each combination gets its own plan and the email
+ * domain condition stays identical to the indexed expression.
+ */
+record CustomerPageQuery(String sql, List<Object> args) {
+
+    static CustomerPageQuery of(String columns, CustomerFilter filter, Long afterId, int limit) {
+        return of(columns, filter, afterId, limit, false);
+    }
+
+    /**
+     * With {@code forUpdate} the rows of the page are locked, in id order, for the rest of the transaction.
+     */
+    static CustomerPageQuery of(String columns, CustomerFilter filter, Long afterId, int limit, boolean forUpdate) {
+        var sql = new StringBuilder("""
+                SELECT %s
+                FROM customer
+                WHERE id > ?
+                """.formatted(columns));
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        if (filter.minAge() != null) {
+            sql.append("  AND age >= ?\n");
+            args.add(filter.minAge());
+        }
+        if (filter.maxAge() != null) {
+            sql.append("  AND age <= ?\n");
+            args.add(filter.maxAge());
+        }
+        if (filter.emailDomain() != null) {
+            sql.append("  AND lower(split_part(email, '@', 2)) = lower(?)\n");
+            args.add(filter.emailDomain());
+        }
+        sql.append("""
+                ORDER BY id
+                LIMIT ?
+                """);
+        args.add(limit);
+        if (forUpdate) {
+            sql.append("FOR UPDATE\n");
+        }
+        return new CustomerPageQuery(sql.toString(), List.copyOf(args));
+    }
+}
@@ -0,0 +1,159 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.DuplicateResourceException;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository("r2dbc")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerR2DBCDataAccessService implements ReactiveCustomerDao {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2DBCDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    private static CustomerEntity mapRow(Readable row) {
+        return new CustomerEntity(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("version", Long.class)
+        );
+    }
+
+    /**
+     * The driver pulls {@value #STREAM_FETCH_SIZE} rows per round trip through a portal and only asks for the
+     * next batch once the subscriber has requested more, so a slow client holds back the query rather than
+     * filling memory.
+     */
+    @Override
+    public Flux<CustomerEntity> selectAllCustomers() {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                ORDER BY id
+                """;
+        return databaseClient.sql(sql)
+                .filter((statement, next) -> next.execute(statement.fetchSize(STREAM_FETCH_SIZE)))
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<CustomerEntity> selectCustomersPage(Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Mono<CustomerEntity> selectCustomerById(Long id) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .one();
+    }
+
+    /**
+     * Inserts the customer unless its email is already taken, in which case it completes empty.
+     */
+    @Override
+    public Mono<Long> insertCustomer(CustomerEntity customerEntity) {
+        var sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES (:name, :email, :age)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customerEntity.getName())
+                .bind("email", customerEntity.getEmail())
+                .bind("age", customerEntity.getAge())
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> existPersonWithId(Long id) {
+        var sql = """
+                SELECT EXISTS(SELECT 1 FROM customer WHERE id = :id) AS present
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> existPersonWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS(SELECT 1 FROM customer WHERE email = :email) AS present
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    /**
+     * Same single statement as the jdbc implementation: completes empty when the id is unknown or nothing changed.
+     */
+    @Override
+    public Mono<CustomerEntity> updateCustomer(CustomerEntity updateObject) {
+        var sql = """
+                UPDATE customer
+                SET name = COALESCE(:name::text, name),
+                    email = COALESCE(:email::text, email),
+                    age = COALESCE(:age::int, age),
+                    version = version + 1
+                WHERE id = :id
+                  AND (name, email, age) IS DISTINCT FROM (COALESCE(:name::text, name), COALESCE(:email::text, email), COALESCE(:age::int, age))
+                RETURNING id, name, email, age, version
+                """;
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", updateObject.getId());
+        spec = updateObject.getName() != null ? spec.bind("name", updateObject.getName()) : spec.bindNull("name", String.class);
+        spec = updateObject.getEmail() != null ? spec.bind("email", updateObject.getEmail()) : spec.bindNull("email", String.class);
+        spec = updateObject.getAge() != null ? spec.bind("age", updateObject.getAge()) : spec.bindNull("age", Integer.class);
+        return spec.map(CustomerR2DBCDataAccessService::mapRow)
+                .one()
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicateResourceException("Email already taken"));
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomerById(Long id) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+}
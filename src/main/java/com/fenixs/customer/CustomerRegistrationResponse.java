@@ -0,0 +1,6 @@
+package com.fenixs.customer;
+
+public record CustomerRegistrationResponse(
+        Long id
+) {
+}
@@ -0,0 +1,15 @@
+package com.fenixs.customer;
+
+public record CustomerRegistrationResult(
+        int index,
+        String email,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+}
@@ -1,10 +1,96 @@
 package com.fenixs.customer;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface CustomerRepository extends JpaRepository<CustomerEntity, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface CustomerRepository extends JpaRepository<CustomerEntity, Long>, CustomerRepositoryCustom {
 
     boolean existsCustomerEntityById(Long id);
 
     boolean existsCustomerEntityByEmail(String email);
+
+    @Query("SELECT c.email FROM CustomerEntity c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    @Transactional
+    @Query(value = """
+            INSERT INTO customer(name, email, age)
+            VALUES (:name, :email, :age)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Long> insertIfEmailAbsent(String name, String email, Integer age);
+
+    @Transactional
+    @Query(value = """
+            DELETE FROM customer
+            WHERE id = :id
+            RETURNING id, name, email, age, version
+            """, nativeQuery = true)
+    Optional<CustomerEntity> deleteReturning(Long id);
+
+    // locks in id order first, so concurrent bulk deletes cannot deadlock each other
+    @Transactional
+    @Query(value = """
+            DELETE FROM customer
+            WHERE id IN (SELECT id FROM customer WHERE id IN :ids ORDER BY id FOR UPDATE)
+            RETURNING id, name, email, age, version
+            """, nativeQuery = true)
+    List<CustomerEntity> deleteAllReturning(Collection<Long> ids);
+
+    // the read queries below build detached customers or load them read-only, so Hibernate keeps no
+    // snapshot to dirty check them against
+    @Query("SELECT new com.fenixs.customer.CustomerEntity(c.id, c.name, c.email, c.age, c.version) FROM CustomerEntity c ORDER BY c.id")
+    List<CustomerEntity> findAllDetached();
+
+    @Query("""
+            SELECT new com.fenixs.customer.CustomerEntity(c.id, c.name, c.email, c.age, c.version)
+            FROM CustomerEntity c
+            WHERE c.id > :afterId
+            ORDER BY c.id
+            """)
+    List<CustomerEntity> findPageDetached(Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.fenixs.customer.CustomerEntity(c.id, c.name, c.email, c.age, c.version) FROM CustomerEntity c WHERE c.id = :id")
+    Optional<CustomerEntity> findByIdDetached(Long id);
+
+    @Query("SELECT new com.fenixs.customer.CustomerEntity(c.id, c.name, c.email, c.age, c.version) FROM CustomerEntity c WHERE c.id IN :ids")
+    List<CustomerEntity> findAllByIdDetached(Collection<Long> ids);
+
+    // native for ILIKE, which the trigram index on name serves; JPQL would need lower(name)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query(value = """
+            SELECT id, name, email, age, version
+            FROM customer
+            WHERE name ILIKE :pattern
+              AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CustomerEntity> searchByName(String pattern, Long afterId, int limit);
+
+    // constructor expression results are not managed, so the persistence context does not grow while streaming
+    @Query("SELECT new com.fenixs.customer.CustomerEntity(c.id, c.name, c.email, c.age, c.version) FROM CustomerEntity c ORDER BY c.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<CustomerEntity> streamAllCustomers();
+
+    @Query(value = """
+            SELECT CASE WHEN reltuples < 0 THEN (SELECT count(*) FROM customer) ELSE reltuples::bigint END
+            FROM pg_class
+            WHERE oid = 'customer'::regclass
+            """, nativeQuery = true)
+    long estimateCount();
 }
@@ -0,0 +1,21 @@
+package com.fenixs.customer;
+
+import java.util.List;
+import java.util.Set;
+
+public interface CustomerRepositoryCustom {
+
+    List<CustomerEntity> findPage(CustomerFilter filter, Long afterId, int limit);
+
+    List<CustomerView> findViewPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit);
+
+    /**
+     * Deletes the first {@code limit} customers, by id, matching the filter and returns them.
+     */
+    List<CustomerEntity> deletePage(CustomerFilter filter, int limit);
+
+    /**
+     * Sends the pending inserts and updates and detaches every entity of the persistence context.
+     */
+    void flushAndClear();
+}
@@ -0,0 +1,75 @@
+package com.fenixs.customer;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The page queries are native, because HQL cannot type the result of {@code split_part} and the email
+ * domain condition has to repeat the indexed expression; see {@link CustomerPageQuery}.
+ */
+class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CustomerEntity> findPage(CustomerFilter filter, Long afterId, int limit) {
+        var query = CustomerPageQuery.of("id, name, email, age, version", filter, afterId, limit);
+        return bind(entityManager.createNativeQuery(query.sql(), CustomerEntity.class), query)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * Tuple projection of the requested columns; the rows are never managed by the persistence context.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CustomerView> findViewPage(CustomerFilter filter, Set<CustomerField> fields, Long afterId, int limit) {
+        var query = CustomerPageQuery.of(CustomerField.columns(fields), filter, afterId, limit);
+        List<Tuple> rows = bind(entityManager.createNativeQuery(query.sql(), Tuple.class), query)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new CustomerView(
+                        row.get("id", Long.class),
+                        fields.contains(CustomerField.NAME) ? row.get("name", String.class) : null,
+                        fields.contains(CustomerField.EMAIL) ? row.get("email", String.class) : null,
+                        fields.contains(CustomerField.AGE) ? row.get("age", Integer.class) : null
+                ))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CustomerEntity> deletePage(CustomerFilter filter, int limit) {
+        var query = CustomerPageQuery.of("id", filter, 0L, limit, true);
+        var sql = """
+                DELETE FROM customer
+                WHERE id IN (%s)
+                RETURNING id, name, email, age, version
+                """.formatted(query.sql());
+        return bind(entityManager.createNativeQuery(sql, CustomerEntity.class), query)
+                .getResultList();
+    }
+
+    @Override
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static Query bind(Query query, CustomerPageQuery pageQuery) {
+        List<Object> args = pageQuery.args();
+        for (int i = 0; i < args.size(); i++) {
+            query.setParameter(i + 1, args.get(i));
+        }
+        return query;
+    }
+}
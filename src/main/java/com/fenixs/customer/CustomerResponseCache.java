@@ -0,0 +1,131 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Customers and list pages as the JSON bytes sent to clients, so a hit is written out without object
+ * mapping or serialization. Customers are keyed by id and dropped when {@link CustomerService} writes them.
+ * Pages are keyed by their query and a generation that every write bumps, which retires all earlier
+ * snapshots at once; they then age out of the byte bounded cache. Writes that bypass the service from
+ * other instances are only picked up once the TTL expires, as with {@link CustomerCache}.
+ */
+@Component
+public class CustomerResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, EncodedCustomer> customers;
+    private final Cache<PageKey, byte[]> pages;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CustomerResponseCache(CustomerResponseCacheProperties properties,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.customers = Caffeine.newBuilder()
+                .maximumSize(properties.maxCustomers())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(properties.maxPageSize().toBytes())
+                .<PageKey, byte[]>weigher((key, json) -> json.length)
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customers, "customer-responses");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "customer-pages");
+    }
+
+    /**
+     * Returns the encoded customer, encoding what {@code loader} returns on a miss. Exceptions thrown by
+     * the loader are passed on and nothing is cached.
+     */
+    public EncodedCustomer customer(Long id, Function<Long, CustomerEntity> loader) {
+        return customers.get(id, key -> encode(loader.apply(key)));
+    }
+
+    private EncodedCustomer encode(CustomerEntity customer) {
+        try {
+            return new EncodedCustomer(objectMapper.writeValueAsBytes(customer), CustomerETag.of(customer));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not encode customer [%s]".formatted(customer.getId()), e);
+        }
+    }
+
+    /**
+     * Copies the page snapshot to {@code outputStream}, rendering it with {@code writer} on a miss.
+     */
+    public void writePage(CustomerFilter filter, Long afterId, int limit, PageWriter writer, OutputStream outputStream)
+            throws IOException {
+        // the generation is read before rendering, so a page racing a write is filed under a retired generation
+        PageKey key = new PageKey(filter, afterId, limit, generation.get());
+        byte[] json;
+        try {
+            json = pages.get(key, k -> render(writer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        outputStream.write(json);
+        outputStream.flush();
+    }
+
+    private static byte[] render(PageWriter writer) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try {
+            writer.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Drops the customer and retires every page snapshot.
+     */
+    public void invalidate(Long id) {
+        customers.invalidate(id);
+        invalidatePages();
+    }
+
+    /**
+     * Retires every page snapshot. Inside a transaction this is repeated after commit, so a page rendered
+     * from the state before the commit is not served under the new generation.
+     */
+    public void invalidatePages() {
+        generation.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    public record EncodedCustomer(byte[] json, String eTag) {
+    }
+
+    private record PageKey(CustomerFilter filter, Long afterId, int limit, long generation) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.fenixs.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "customer.response-cache")
+public record CustomerResponseCacheProperties(
+        long maxCustomers,
+        DataSize maxPageSize,
+        Duration ttl
+) {
+}
@@ -0,0 +1,10 @@
+package com.fenixs.customer;
+
+/**
+ * Receives customers one row at a time, without an entity being built. Text columns come as UTF-8 bytes.
+ */
+@FunctionalInterface
+public interface CustomerRowHandler {
+
+    void row(long id, byte[] name, byte[] email, int age);
+}
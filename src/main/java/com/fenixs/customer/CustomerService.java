@@ -1,80 +1,570 @@
 package com.fenixs.customer;
 
+import com.fenixs.ReplicaRead;
 import com.fenixs.exception.DuplicateResourceException;
+import com.fenixs.exception.PreconditionFailedException;
 import com.fenixs.exception.RequestValidationException;
 import com.fenixs.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CustomerService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_BULK_SIZE = 10_000;
+    static final int MIN_SEARCH_LENGTH = 3;
+    static final int BULK_CHUNK_SIZE = 500;
+
     private final CustomerDao customerDao;
+    private final CustomerCache customerCache;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerStatistics customerStatistics;
+    private final CustomerJsonWriter customerJsonWriter;
+    private final CustomerResponseCache customerResponseCache;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
+                           CustomerCache customerCache,
+                           CustomerEmailFilter customerEmailFilter,
+                           CustomerStatistics customerStatistics,
+                           CustomerJsonWriter customerJsonWriter,
+                           CustomerResponseCache customerResponseCache) {
         this.customerDao = customerDao;
+        this.customerCache = customerCache;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerStatistics = customerStatistics;
+        this.customerJsonWriter = customerJsonWriter;
+        this.customerResponseCache = customerResponseCache;
+    }
+
+    /**
+     * Writes one page of the customers matching the filter, ordered by id, as JSON to {@code outputStream},
+     * from the page snapshot when one is current. The cursor is only meaningful together with the filter
+     * of the request that returned it. The request is validated before anything is written. Not a
+     * {@link ReplicaRead}: a lagging replica would put an outdated page into the snapshot cache.
+     */
+    public void writeCustomers(CustomerFilter filter, String cursor, Integer size, OutputStream outputStream) throws IOException {
+        CustomerFilter normalized = normalize(filter);
+        int limit = pageSize(size);
+        Long afterId = decodeCursor(cursor);
+        customerResponseCache.writePage(normalized, afterId, limit,
+                buffer -> customerJsonWriter.writePage(normalized, afterId, limit, buffer), outputStream);
+    }
+
+    /**
+     * Same page as {@link #writeCustomers}, reading and returning only the requested fields.
+     */
+    @ReplicaRead
+    public CustomerViewPage getCustomerViews(CustomerFilter filter, String fields, String cursor, Integer size) {
+        Set<CustomerField> selected = CustomerField.parse(fields);
+        CustomerFilter normalized = normalize(filter);
+        int limit = pageSize(size);
+        List<CustomerView> customers = customerDao.selectCustomerViewsPage(normalized, selected, decodeCursor(cursor), limit + 1);
+        return toViewPage(customers, limit);
+    }
+
+    /**
+     * Pages through the customers whose name matches, ordered by id. Terms shorter than
+     * {@value #MIN_SEARCH_LENGTH} characters are rejected, they have no trigram to narrow the index scan with.
+     */
+    @ReplicaRead
+    public CustomerPage searchCustomers(String name, String match, String cursor, Integer size) {
+        String term = name == null ? "" : name.strip();
+        if (term.length() < MIN_SEARCH_LENGTH) {
+            throw new RequestValidationException("name must be at least %s characters".formatted(MIN_SEARCH_LENGTH));
+        }
+        CustomerNameMatch nameMatch = CustomerNameMatch.from(match);
+        int limit = pageSize(size);
+        List<CustomerEntity> customers = customerDao.selectCustomersByName(term, nameMatch, decodeCursor(cursor), limit + 1);
+        return toPage(customers, limit);
     }
 
-    public List<CustomerEntity> getAllCustomers() {
-        return customerDao.selectAllCustomers();
+    @ReplicaRead
+    public CustomerViewPage searchCustomerViews(String name, String match, String fields, String cursor, Integer size) {
+        Set<CustomerField> selected = CustomerField.parse(fields);
+        CustomerPage page = searchCustomers(name, match, cursor, size);
+        return new CustomerViewPage(
+                page.customers().stream()
+                        .map(customer -> CustomerView.of(customer, selected))
+                        .toList(),
+                page.nextCursor()
+        );
     }
 
     public CustomerEntity getCustomer(Long id) {
-        return customerDao.selectCustomerById(id)
+        return customerCache.get(id, customerDao::selectCustomerById)
                 .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found.".formatted(id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest request) {
-        String email = request.email();
-        if (customerDao.existPersonWithEmail(email)) {
-            throw new DuplicateResourceException("Email already taken");
+    /**
+     * Looks up many customers at once: cached customers are served from the cache, the rest are read with
+     * a single query. The customers come back in the order of {@code ids}, repeated ids once, and the ids
+     * that do not exist are listed separately.
+     */
+    public CustomerBatch getCustomersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RequestValidationException("no customer ids given");
+        }
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new RequestValidationException("customer ids must not be null");
+            }
+            requested.add(id);
+        }
+        if (requested.size() > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("at most %s customers can be fetched at once".formatted(MAX_PAGE_SIZE));
         }
-        String name = request.name();
-        Integer age = request.age();
-        CustomerEntity customer = new CustomerEntity(name, email, age);
-        customerDao.insertCustomer(customer);
+
+        Map<Long, CustomerEntity> found = customerCache.getAll(requested, missing ->
+                customerDao.selectCustomersByIds(missing).stream()
+                        .collect(Collectors.toMap(CustomerEntity::getId, Function.identity())));
+        List<CustomerEntity> customers = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            CustomerEntity customer = found.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new CustomerBatch(customers, missingIds);
     }
 
-    public void updateCustomer(Long id, CustomerUpdateRequest request) {
+    /**
+     * The customer as the JSON bytes of its response, encoded once and served from then on until it is written.
+     */
+    public CustomerResponseCache.EncodedCustomer getEncodedCustomer(Long id) {
+        return customerResponseCache.customer(id, this::getCustomer);
+    }
 
-        CustomerEntity customer = getCustomer(id);
+    /**
+     * Served from the cached full customer, only the response is narrowed.
+     */
+    public CustomerView getCustomerView(Long id, String fields) {
+        Set<CustomerField> selected = CustomerField.parse(fields);
+        return CustomerView.of(getCustomer(id), selected);
+    }
 
-        boolean change = false;
+    /**
+     * Relies on the unique email constraint instead of a separate existence check,
+     * so concurrent registrations of the same email cannot both succeed.
+     */
+    public Long addCustomer(CustomerRegistrationRequest request) {
+        CustomerEntity customer = new CustomerEntity(request.name(), request.email(), request.age());
+        return customerStatistics.recording(() -> {
+            Long id = customerDao.insertCustomer(customer)
+                    .orElseThrow(() -> new DuplicateResourceException("Email already taken"));
+            customerCache.invalidate(id);
+            customerResponseCache.invalidate(id);
+            customerEmailFilter.add(customer.getEmail());
+            customerStatistics.added(customer);
+            return id;
+        });
+    }
 
-        if (request.name() != null && !request.name().equals(customer.getName())) {
-            customer.setName(request.name());
-            change = true;
+    /**
+     * Registers many customers with one set based duplicate check and one batched insert,
+     * reporting an outcome for every request in the order they were given.
+     */
+    @Transactional
+    public List<CustomerRegistrationResult> addCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RequestValidationException("no customers to register");
+        }
+        if (requests.size() > MAX_BULK_SIZE) {
+            throw new RequestValidationException("at most %s customers can be registered at once".formatted(MAX_BULK_SIZE));
         }
 
-        if (request.email() != null && !request.email().equals(customer.getEmail())) {
-            if (customerDao.existPersonWithEmail(request.email())) {
+        Set<String> existingEmails = customerEmailFilter.existingEmails(requests.stream()
+                .map(CustomerRegistrationRequest::email)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        Set<String> requestedEmails = new HashSet<>();
+        List<CustomerEntity> customers = new ArrayList<>();
+        List<CustomerRegistrationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            String email = request.email();
+            if (request.name() == null || email == null || request.age() == null) {
+                results.add(new CustomerRegistrationResult(i, email, CustomerRegistrationResult.Status.INVALID, "name, email and age are required"));
+            } else if (existingEmails.contains(email)) {
+                results.add(new CustomerRegistrationResult(i, email, CustomerRegistrationResult.Status.DUPLICATE, "Email already taken"));
+            } else if (!requestedEmails.add(email)) {
+                results.add(new CustomerRegistrationResult(i, email, CustomerRegistrationResult.Status.DUPLICATE, "Email repeated in request"));
+            } else {
+                customers.add(new CustomerEntity(request.name(), email, request.age()));
+                results.add(new CustomerRegistrationResult(i, email, CustomerRegistrationResult.Status.CREATED, null));
+            }
+        }
+
+        if (!customers.isEmpty()) {
+            try {
+                customerStatistics.recording(() -> {
+                    customerDao.insertCustomers(customers);
+                    customerResponseCache.invalidatePages();
+                    afterCommit(() -> customers.forEach(customer -> {
+                        customerEmailFilter.add(customer.getEmail());
+                        customerStatistics.added(customer);
+                    }));
+                    return customers;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // another request registered one of the emails after our check, the whole batch is rolled back
                 throw new DuplicateResourceException("Email already taken");
             }
-            customer.setEmail(request.email());
-            change = true;
         }
+        return results;
+    }
 
-        if (request.age() != null && !request.age().equals(customer.getAge())) {
-            customer.setAge(request.age());
-            change = true;
+    /**
+     * Runs {@code action} once the current transaction commits, or straight away outside one. Adding to
+     * the email filter or the statistics before the commit could race a rebuild whose snapshot does not
+     * see the rows yet, leaving them out until the next one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
+    }
+
+    public CustomerEntity updateCustomer(Long id, CustomerUpdateRequest request) {
+        return updateCustomer(id, request, null);
+    }
 
-        if (!change) {
+    /**
+     * Updates the requested properties in one round trip; the existence check only runs
+     * when the update did not touch a row, to tell a missing customer from a no-op.
+     * A non null {@code expectedVersion} makes the update conditional on the stored version.
+     */
+    public CustomerEntity updateCustomer(Long id, CustomerUpdateRequest request, Long expectedVersion) {
+        if (request.name() == null && request.email() == null && request.age() == null) {
             throw new RequestValidationException("no data changes found!");
         }
 
-        customerDao.updateCustomer(customer);
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setVersion(expectedVersion);
+        if (request.name() != null) {
+            changes.setName(request.name());
+        }
+        if (request.email() != null) {
+            changes.setEmail(request.email());
+        }
+        if (request.age() != null) {
+            changes.setAge(request.age());
+        }
+
+        return customerStatistics.recording(() -> {
+            CustomerChange change = customerDao.updateCustomer(changes)
+                    .orElseThrow(() -> notUpdated(id, expectedVersion));
+            changed(change);
+            return change.current();
+        });
+    }
+
+    /**
+     * Applies many partial updates, {@value #BULK_CHUNK_SIZE} customers per statement and transaction so
+     * no lock is held for the whole request. Every request gets an outcome, in the order given. A chunk
+     * that runs into a taken email is retried one customer at a time to tell which one it was.
+     */
+    public List<CustomerBulkResult> updateCustomers(List<CustomerBulkUpdateRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RequestValidationException("no customers to update");
+        }
+        if (requests.size() > MAX_BULK_SIZE) {
+            throw new RequestValidationException("at most %s customers can be updated at once".formatted(MAX_BULK_SIZE));
+        }
+
+        CustomerBulkResult[] results = new CustomerBulkResult[requests.size()];
+        Map<Long, Integer> positions = new HashMap<>();
+        List<CustomerEntity> updates = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerBulkUpdateRequest request = requests.get(i);
+            Long id = request.id();
+            if (id == null) {
+                results[i] = new CustomerBulkResult(null, CustomerBulkResult.Status.INVALID, "id is required");
+            } else if (request.name() == null && request.email() == null && request.age() == null) {
+                results[i] = new CustomerBulkResult(id, CustomerBulkResult.Status.INVALID, "no data changes found!");
+            } else if (positions.putIfAbsent(id, i) != null) {
+                results[i] = new CustomerBulkResult(id, CustomerBulkResult.Status.INVALID, "id repeated in request");
+            } else {
+                CustomerEntity changes = new CustomerEntity();
+                changes.setId(id);
+                if (request.name() != null) {
+                    changes.setName(request.name());
+                }
+                if (request.email() != null) {
+                    changes.setEmail(request.email());
+                }
+                if (request.age() != null) {
+                    changes.setAge(request.age());
+                }
+                updates.add(changes);
+            }
+        }
+
+        for (int from = 0; from < updates.size(); from += BULK_CHUNK_SIZE) {
+            List<CustomerEntity> chunk = updates.subList(from, Math.min(from + BULK_CHUNK_SIZE, updates.size()));
+            customerStatistics.recording(() -> {
+                List<CustomerChange> changes;
+                try {
+                    changes = customerDao.updateCustomers(chunk);
+                } catch (DuplicateResourceException e) {
+                    changes = updateOneByOne(chunk, positions, results);
+                }
+                for (CustomerChange change : changes) {
+                    changed(change);
+                    Long id = change.current().getId();
+                    results[positions.get(id)] = new CustomerBulkResult(id, CustomerBulkResult.Status.UPDATED, null);
+                }
+                return changes;
+            });
+
+            // an update that did not touch a row is either a no-op or a customer that does not exist
+            List<Long> untouched = chunk.stream()
+                    .map(CustomerEntity::getId)
+                    .filter(id -> results[positions.get(id)] == null)
+                    .toList();
+            if (!untouched.isEmpty()) {
+                Set<Long> existing = customerDao.selectCustomersByIds(untouched).stream()
+                        .map(CustomerEntity::getId)
+                        .collect(Collectors.toSet());
+                for (Long id : untouched) {
+                    results[positions.get(id)] = existing.contains(id)
+                            ? new CustomerBulkResult(id, CustomerBulkResult.Status.UNCHANGED, "no data changes found!")
+                            : new CustomerBulkResult(id, CustomerBulkResult.Status.NOT_FOUND,
+                                    "customer with id [%s] not found.".formatted(id));
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    private List<CustomerChange> updateOneByOne(List<CustomerEntity> chunk,
+                                                Map<Long, Integer> positions,
+                                                CustomerBulkResult[] results) {
+        List<CustomerChange> changes = new ArrayList<>();
+        for (CustomerEntity update : chunk) {
+            try {
+                customerDao.updateCustomer(update).ifPresent(changes::add);
+            } catch (DuplicateResourceException e) {
+                Long id = update.getId();
+                results[positions.get(id)] = new CustomerBulkResult(id, CustomerBulkResult.Status.DUPLICATE, e.getMessage());
+            }
+        }
+        return changes;
+    }
+
+    private void changed(CustomerChange change) {
+        CustomerEntity current = change.current();
+        customerCache.invalidate(current.getId());
+        customerResponseCache.invalidate(current.getId());
+        if (!current.getEmail().equals(change.previous().getEmail())) {
+            customerEmailFilter.add(current.getEmail());
+        }
+        customerStatistics.changed(change);
     }
 
+    private RuntimeException notUpdated(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return customerDao.existPersonWithId(id)
+                    ? new RequestValidationException("no data changes found!")
+                    : new ResourceNotFoundException("customer with id [%s] not found.".formatted(id));
+        }
+        Optional<CustomerEntity> current = customerDao.selectCustomerById(id);
+        if (current.isEmpty()) {
+            return new ResourceNotFoundException("customer with id [%s] not found.".formatted(id));
+        }
+        if (!expectedVersion.equals(current.get().getVersion())) {
+            return new PreconditionFailedException("customer with id [%s] is at version [%s], not [%s]"
+                    .formatted(id, current.get().getVersion(), expectedVersion));
+        }
+        return new RequestValidationException("no data changes found!");
+    }
 
+    /**
+     * The delete hands back the removed row, which tells a missing customer apart without a separate
+     * existence check and gives the statistics the values to subtract.
+     */
     public void deleteCustomerById(Long id) {
-        if(!customerDao.existPersonWithId(id)) {
-            throw new ResourceNotFoundException("customer with id [%s] not found.".formatted(id));
+        customerStatistics.recording(() -> {
+            CustomerEntity deleted = customerDao.deleteCustomerById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found.".formatted(id)));
+            removed(deleted);
+            return deleted;
+        });
+    }
+
+    /**
+     * Deletes the customers {@value #BULK_CHUNK_SIZE} per statement and transaction, reporting for every
+     * id, in the order given and repeated ids once, whether it was deleted or not found.
+     */
+    public List<CustomerBulkResult> deleteCustomersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RequestValidationException("no customer ids given");
+        }
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new RequestValidationException("customer ids must not be null");
+            }
+            requested.add(id);
+        }
+        if (requested.size() > MAX_BULK_SIZE) {
+            throw new RequestValidationException("at most %s customers can be deleted at once".formatted(MAX_BULK_SIZE));
         }
-        customerDao.deleteCustomerById(id);
+
+        List<Long> pending = List.copyOf(requested);
+        Set<Long> deletedIds = new HashSet<>();
+        for (int from = 0; from < pending.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(from, Math.min(from + BULK_CHUNK_SIZE, pending.size()));
+            customerStatistics.recording(() -> {
+                List<CustomerEntity> deleted = customerDao.deleteCustomersByIds(chunk);
+                for (CustomerEntity customer : deleted) {
+                    removed(customer);
+                    deletedIds.add(customer.getId());
+                }
+                return deleted;
+            });
+        }
+        return pending.stream()
+                .map(id -> deletedIds.contains(id)
+                        ? new CustomerBulkResult(id, CustomerBulkResult.Status.DELETED, null)
+                        : new CustomerBulkResult(id, CustomerBulkResult.Status.NOT_FOUND,
+                                "customer with id [%s] not found.".formatted(id)))
+                .toList();
     }
 
+    /**
+     * Deletes the customers matching the filter, {@value #BULK_CHUNK_SIZE} per statement and transaction
+     * and at most {@value #MAX_BULK_SIZE} per call; callers repeat until nothing is deleted. An empty
+     * filter is rejected rather than deleting everyone.
+     */
+    public List<CustomerBulkResult> deleteCustomers(CustomerFilter filter) {
+        CustomerFilter normalized = normalize(filter);
+        if (normalized.isEmpty()) {
+            throw new RequestValidationException("a filter or ids are required to delete customers");
+        }
+        List<CustomerBulkResult> results = new ArrayList<>();
+        while (results.size() < MAX_BULK_SIZE) {
+            int limit = Math.min(BULK_CHUNK_SIZE, MAX_BULK_SIZE - results.size());
+            List<CustomerEntity> deleted = customerStatistics.recording(() -> {
+                List<CustomerEntity> chunk = customerDao.deleteCustomers(normalized, limit);
+                chunk.forEach(this::removed);
+                return chunk;
+            });
+            for (CustomerEntity customer : deleted) {
+                results.add(new CustomerBulkResult(customer.getId(), CustomerBulkResult.Status.DELETED, null));
+            }
+            if (deleted.size() < limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private void removed(CustomerEntity deleted) {
+        customerCache.invalidate(deleted.getId());
+        customerResponseCache.invalidate(deleted.getId());
+        customerStatistics.removed(deleted);
+    }
+
+    public CustomerStats getCustomerStats() {
+        return customerStatistics.stats();
+    }
 
+    static CustomerFilter normalize(CustomerFilter filter) {
+        if (filter.minAge() != null && filter.minAge() < 0 || filter.maxAge() != null && filter.maxAge() < 0) {
+            throw new RequestValidationException("age must not be negative");
+        }
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new RequestValidationException(
+                    "minAge [%s] is greater than maxAge [%s]".formatted(filter.minAge(), filter.maxAge()));
+        }
+        String emailDomain = filter.emailDomain();
+        if (emailDomain != null) {
+            emailDomain = emailDomain.strip().toLowerCase();
+            if (emailDomain.startsWith("@")) {
+                emailDomain = emailDomain.substring(1);
+            }
+            if (emailDomain.isEmpty() || emailDomain.contains("@")) {
+                throw new RequestValidationException("invalid email domain [%s]".formatted(filter.emailDomain()));
+            }
+        }
+        return new CustomerFilter(filter.minAge(), filter.maxAge(), emailDomain);
+    }
+
+    static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new RequestValidationException("page size must be greater than 0");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    static CustomerPage toPage(List<CustomerEntity> customers, int limit) {
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        List<CustomerEntity> page = customers.subList(0, limit);
+        return new CustomerPage(page, encodeCursor(page.get(limit - 1).getId()));
+    }
+
+    static CustomerViewPage toViewPage(List<CustomerView> customers, int limit) {
+        if (customers.size() <= limit) {
+            return new CustomerViewPage(customers, null);
+        }
+        List<CustomerView> page = customers.subList(0, limit);
+        return new CustomerViewPage(page, encodeCursor(page.get(limit - 1).id()));
+    }
+
+    static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("invalid cursor [%s]".formatted(cursor));
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory aggregate of the customer count, the age histogram and the email domains, kept up to date by
+ * {@link CustomerService} on every write so serving it never touches the customer table.
+ * <p>
+ * The aggregate is seeded at startup and rebuilt on the {@code customer.statistics.reconcile-interval}
+ * schedule, which corrects for writes that bypass the service (imports, other instances, reactive mode).
+ * The counts are not idempotent, so every change has to land either in the rebuild's snapshot or in the
+ * changes applied on top of it, never both: writes run through {@link #recording} and a rebuild takes its
+ * repeatable read snapshot only while no write sits between its commit and its report. Changes reported
+ * after that are applied to both aggregates. Until the first build completes the stats are not ready.
+ */
+@Component
+public class CustomerStatistics {
+
+    private final CustomerDao customerDao;
+    private final CustomerStatisticsProperties properties;
+    private final TransactionTemplate snapshot;
+    private final ReadWriteLock writes = new ReentrantReadWriteLock();
+
+    private volatile Aggregate aggregate;
+    private volatile Aggregate building;
+    private volatile Instant reconciledAt;
+    private final AtomicLong drift = new AtomicLong();
+
+    public CustomerStatistics(@Qualifier("jdbc") CustomerDao customerDao,
+                              CustomerStatisticsProperties properties,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.properties = properties;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot.setReadOnly(true);
+        Gauge.builder("customer.statistics.customers", this, s -> s.aggregate == null ? 0 : s.aggregate.customers.sum())
+                .description("Customers counted by the in-memory statistics")
+                .register(meterRegistry);
+        Gauge.builder("customer.statistics.drift", drift, AtomicLong::get)
+                .description("Customers the incremental count was off by at the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a write whose changes are reported here, holding off a rebuild's snapshot until they are. Inside
+     * a transaction the hold lasts until it completes, so report the changes after commit.
+     */
+    public <T> T recording(Supplier<T> write) {
+        Lock lock = writes.readLock();
+        lock.lock();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                return write.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return write.get();
+    }
+
+    public void added(CustomerEntity customer) {
+        apply(customer, 1);
+    }
+
+    public void removed(CustomerEntity customer) {
+        apply(customer, -1);
+    }
+
+    public void changed(CustomerChange change) {
+        CustomerEntity previous = change.previous();
+        CustomerEntity current = change.current();
+        if (Objects.equals(previous.getAge(), current.getAge())
+                && emailDomain(previous).equals(emailDomain(current))) {
+            return;
+        }
+        removed(previous);
+        added(current);
+    }
+
+    private void apply(CustomerEntity customer, int delta) {
+        // read building before aggregate: a rebuild swaps aggregate in before clearing building
+        Aggregate next = building;
+        if (next != null) {
+            next.add(customer, delta);
+        }
+        Aggregate current = aggregate;
+        if (current != null && current != next) {
+            current.add(customer, delta);
+        }
+    }
+
+    /**
+     * Recounts the customer table into a fresh aggregate and swaps it in. Changes committed before the
+     * snapshot have been reported to the old aggregate only, later ones are applied to the new one too.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${customer.statistics.reconcile-interval}",
+            fixedDelayString = "${customer.statistics.reconcile-interval}"
+    )
+    public synchronized void reconcile() {
+        Aggregate next = new Aggregate(properties.ageBucketWidth());
+        try {
+            snapshot.executeWithoutResult(status -> {
+                Lock lock = writes.writeLock();
+                lock.lock();
+                try {
+                    // the first query fixes the repeatable read snapshot
+                    customerDao.estimateCustomerCount();
+                    building = next;
+                } finally {
+                    lock.unlock();
+                }
+                customerDao.streamAllCustomers(customer -> next.add(customer, 1));
+            });
+            Aggregate previous = aggregate;
+            if (previous != null) {
+                drift.set(next.customers.sum() - previous.customers.sum());
+            }
+            aggregate = next;
+            reconciledAt = Instant.now();
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Costs a pass over the age buckets and distinct email domains, independent of the number of customers.
+     */
+    public CustomerStats stats() {
+        Aggregate current = aggregate;
+        if (current == null) {
+            return new CustomerStats(false, 0, List.of(), List.of(), null);
+        }
+        int width = properties.ageBucketWidth();
+        List<CustomerStats.AgeBucket> ageBuckets = current.ageBuckets.entrySet().stream()
+                .filter(bucket -> bucket.getValue().sum() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .map(bucket -> new CustomerStats.AgeBucket(
+                        bucket.getKey() * width,
+                        bucket.getKey() * width + width - 1,
+                        bucket.getValue().sum()
+                ))
+                .toList();
+        List<CustomerStats.EmailDomain> topEmailDomains = current.emailDomains.entrySet().stream()
+                .map(domain -> new CustomerStats.EmailDomain(domain.getKey(), domain.getValue()))
+                .filter(domain -> domain.customers() > 0)
+                .sorted(Comparator.comparingLong(CustomerStats.EmailDomain::customers).reversed()
+                        .thenComparing(CustomerStats.EmailDomain::domain))
+                .limit(properties.topEmailDomains())
+                .toList();
+        return new CustomerStats(true, current.customers.sum(), ageBuckets, topEmailDomains, reconciledAt);
+    }
+
+    private static String emailDomain(CustomerEntity customer) {
+        return CustomerFilter.emailDomain(customer.getEmail()).toLowerCase();
+    }
+
+    private static final class Aggregate {
+
+        private final int ageBucketWidth;
+        private final LongAdder customers = new LongAdder();
+        private final ConcurrentMap<Integer, LongAdder> ageBuckets = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Long> emailDomains = new ConcurrentHashMap<>();
+
+        private Aggregate(int ageBucketWidth) {
+            this.ageBucketWidth = ageBucketWidth;
+        }
+
+        void add(CustomerEntity customer, int delta) {
+            customers.add(delta);
+            ageBuckets.computeIfAbsent(Math.floorDiv(customer.getAge(), ageBucketWidth), bucket -> new LongAdder())
+                    .add(delta);
+            // unlike the bounded age buckets, domains come and go: drop them once nobody uses them
+            emailDomains.merge(emailDomain(customer), (long) delta, (count, added) -> count + added == 0 ? null : count + added);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.fenixs.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "customer.statistics")
+public record CustomerStatisticsProperties(
+        int ageBucketWidth,
+        int topEmailDomains
+) {
+}
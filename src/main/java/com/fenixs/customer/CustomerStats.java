@@ -0,0 +1,22 @@
+package com.fenixs.customer;
+
+import java.time.Instant;
+import java.util.List;
+
+public record CustomerStats(
+        boolean ready,
+        long customers,
+        List<AgeBucket> ageBuckets,
+        List<EmailDomain> topEmailDomains,
+        Instant reconciledAt
+) {
+
+    /**
+     * Customers aged {@code from} up to and including {@code to}.
+     */
+    public record AgeBucket(int from, int to, long customers) {
+    }
+
+    public record EmailDomain(String domain, long customers) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Set;
+
+/**
+ * A customer carrying only the requested fields; the others are null and left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerView(
+        Long id,
+        String name,
+        String email,
+        Integer age
+) {
+
+    public static CustomerView of(CustomerEntity customer, Set<CustomerField> fields) {
+        return new CustomerView(
+                customer.getId(),
+                fields.contains(CustomerField.NAME) ? customer.getName() : null,
+                fields.contains(CustomerField.EMAIL) ? customer.getEmail() : null,
+                fields.contains(CustomerField.AGE) ? customer.getAge() : null
+        );
+    }
+}
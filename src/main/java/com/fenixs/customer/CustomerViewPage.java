@@ -0,0 +1,9 @@
+package com.fenixs.customer;
+
+import java.util.List;
+
+public record CustomerViewPage(
+        List<CustomerView> customers,
+        String nextCursor
+) {
+}
@@ -0,0 +1,33 @@
+package com.fenixs.customer;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Maps rows selected with {@link CustomerField#columns(Set)}, reading only the columns that were selected.
+ */
+public class CustomerViewRowMapper implements RowMapper<CustomerView> {
+
+    private final boolean name;
+    private final boolean email;
+    private final boolean age;
+
+    public CustomerViewRowMapper(Set<CustomerField> fields) {
+        this.name = fields.contains(CustomerField.NAME);
+        this.email = fields.contains(CustomerField.EMAIL);
+        this.age = fields.contains(CustomerField.AGE);
+    }
+
+    @Override
+    public CustomerView mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new CustomerView(
+                rs.getLong("id"),
+                name ? rs.getString("name") : null,
+                email ? rs.getString("email") : null,
+                age ? rs.getInt("age") : null
+        );
+    }
+}
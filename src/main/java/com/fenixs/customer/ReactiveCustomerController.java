@@ -0,0 +1,97 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The customer API of the reactive deployment mode. Streams are written as the database produces rows and the
+ * client consumes them. Bulk registration and CSV import are only offered by {@link CustomerController}.
+ */
+@RestController
+@RequestMapping("api/v1/customers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerService customerService;
+    private final ObjectMapper objectMapper;
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService, ObjectMapper objectMapper) {
+        this.customerService = customerService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping
+    public Mono<CustomerPage> getCustomers(@RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "size", required = false) Integer size) {
+        return customerService.getCustomers(cursor, size);
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<Flux<DataBuffer>> exportCustomers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        CustomerExportFormat exportFormat = CustomerExportFormat.from(format);
+        Flux<DataBuffer> body = switch (exportFormat) {
+            case NDJSON -> customerService.getAllCustomers().map(this::toNdjson);
+            case CSV -> Flux.concat(
+                    Mono.fromSupplier(() -> encode("id,name,email,age\n")),
+                    customerService.getAllCustomers().map(this::toCsv));
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .body(body);
+    }
+
+    @GetMapping("{customerId}")
+    public Mono<CustomerEntity> getCustomer(@PathVariable("customerId") Long customerId) {
+        return customerService.getCustomer(customerId);
+    }
+
+    @PostMapping
+    public Mono<CustomerRegistrationResponse> registerCustomer(@RequestBody CustomerRegistrationRequest request) {
+        return customerService.addCustomer(request).map(CustomerRegistrationResponse::new);
+    }
+
+    @PutMapping("{customerId}")
+    public Mono<CustomerEntity> updateCustomer(@PathVariable("customerId") Long customerId, @RequestBody CustomerUpdateRequest request) {
+        return customerService.updateCustomer(customerId, request);
+    }
+
+    @DeleteMapping("{customerId}")
+    public Mono<Void> deleteCustomer(@PathVariable("customerId") Long customerId) {
+        return customerService.deleteCustomerById(customerId);
+    }
+
+    private DataBuffer toNdjson(CustomerEntity customer) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(customer);
+            DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 1);
+            return buffer.write(json).write((byte) '\n');
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DataBuffer toCsv(CustomerEntity customer) {
+        return encode(customer.getId() + ","
+                + CustomerExportService.escapeCsv(customer.getName()) + ","
+                + CustomerExportService.escapeCsv(customer.getEmail()) + ","
+                + customer.getAge() + "\n");
+    }
+
+    private DataBuffer encode(String value) {
+        return bufferFactory.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
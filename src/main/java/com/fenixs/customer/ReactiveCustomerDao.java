@@ -0,0 +1,32 @@
+package com.fenixs.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link CustomerDao}; empty publishers take the place of empty optionals.
+ */
+public interface ReactiveCustomerDao {
+
+    /**
+     * Streams every customer ordered by id, fetching rows from the database only as fast as they are requested.
+     */
+    Flux<CustomerEntity> selectAllCustomers();
+
+    Flux<CustomerEntity> selectCustomersPage(Long afterId, int limit);
+
+    Mono<CustomerEntity> selectCustomerById(Long id);
+
+    Mono<Long> insertCustomer(CustomerEntity customerEntity);
+
+    Mono<Boolean> existPersonWithId(Long id);
+
+    Mono<Boolean> existPersonWithEmail(String email);
+
+    Mono<CustomerEntity> updateCustomer(CustomerEntity updateObject);
+
+    /**
+     * Emits whether a customer was deleted.
+     */
+    Mono<Boolean> deleteCustomerById(Long id);
+}
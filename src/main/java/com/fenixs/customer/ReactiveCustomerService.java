@@ -0,0 +1,80 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.DuplicateResourceException;
+import com.fenixs.exception.RequestValidationException;
+import com.fenixs.exception.ResourceNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link CustomerService} for the reactive deployment mode, with the same validation, paging and error semantics.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    public Flux<CustomerEntity> getAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    public Mono<CustomerPage> getCustomers(String cursor, Integer size) {
+        return Mono.defer(() -> {
+            int limit = CustomerService.pageSize(size);
+            return customerDao.selectCustomersPage(CustomerService.decodeCursor(cursor), limit + 1)
+                    .collectList()
+                    .map(customers -> CustomerService.toPage(customers, limit));
+        });
+    }
+
+    public Mono<CustomerEntity> getCustomer(Long id) {
+        return customerDao.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<Long> addCustomer(CustomerRegistrationRequest request) {
+        CustomerEntity customer = new CustomerEntity(request.name(), request.email(), request.age());
+        return customerDao.insertCustomer(customer)
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Email already taken")));
+    }
+
+    public Mono<CustomerEntity> updateCustomer(Long id, CustomerUpdateRequest request) {
+        if (request.name() == null && request.email() == null && request.age() == null) {
+            return Mono.error(new RequestValidationException("no data changes found!"));
+        }
+
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        if (request.name() != null) {
+            changes.setName(request.name());
+        }
+        if (request.email() != null) {
+            changes.setEmail(request.email());
+        }
+        if (request.age() != null) {
+            changes.setAge(request.age());
+        }
+
+        return customerDao.updateCustomer(changes)
+                .switchIfEmpty(customerDao.existPersonWithId(id)
+                        .flatMap(exists -> Mono.error(exists
+                                ? new RequestValidationException("no data changes found!")
+                                : notFound(id))));
+    }
+
+    public Mono<Void> deleteCustomerById(Long id) {
+        return customerDao.deleteCustomerById(id)
+                .flatMap(deleted -> deleted ? Mono.<Void>empty() : Mono.error(notFound(id)));
+    }
+
+    private static ResourceNotFoundException notFound(Long id) {
+        return new ResourceNotFoundException("customer with id [%s] not found.".formatted(id));
+    }
+}
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- on a large live table build it beforehand with CREATE INDEX CONCURRENTLY, this then becomes a no-op
+CREATE INDEX IF NOT EXISTS customer_name_trgm_idx
+ON customer USING gin (name gin_trgm_ops);
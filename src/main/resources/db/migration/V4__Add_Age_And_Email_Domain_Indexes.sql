@@ -0,0 +1,6 @@
+CREATE INDEX IF NOT EXISTS customer_age_idx
+ON customer (age);
+
+-- queries must filter on exactly this expression; id lets domain pages be read in keyset order from the index
+CREATE INDEX IF NOT EXISTS customer_email_domain_idx
+ON customer (lower(split_part(email, '@', 2)), id);
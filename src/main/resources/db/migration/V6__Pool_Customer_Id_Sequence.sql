@@ -0,0 +1,2 @@
+-- hibernate hands out the ids of a whole increment from one nextval, see CustomerEntity.ID_ALLOCATION_SIZE
+ALTER SEQUENCE customer_id_seq INCREMENT BY 50;
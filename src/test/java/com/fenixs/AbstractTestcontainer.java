@@ -4,7 +4,9 @@ import com.github.javafaker.Faker;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeAll;
 import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -53,6 +55,16 @@ public abstract class AbstractTestcontainer {
         return new JdbcTemplate(getDataSource());
     }
 
+    protected static DatabaseClient getDatabaseClient() {
+        return DatabaseClient.create(ConnectionFactoryBuilder.withUrl("r2dbc:postgresql://%s:%s/%s".formatted(
+                        container.getHost(),
+                        container.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                        container.getDatabaseName()))
+                .username(container.getUsername())
+                .password(container.getPassword())
+                .build());
+    }
+
 
     protected static final Faker FAKER = new Faker();
 }
@@ -0,0 +1,70 @@
+package com.fenixs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionPermitDataSourceTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private ConnectionPermitDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        underTest = new ConnectionPermitDataSource(dataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void closeReturnsThePermitOnce() throws SQLException {
+        Connection actual = underTest.getConnection();
+        assertThat(underTest.availablePermits()).isEqualTo(1);
+
+        actual.close();
+        actual.close();
+
+        verify(connection, times(2)).close();
+        assertThat(underTest.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpWhenAllConnectionsAreInUse() throws SQLException {
+        underTest.getConnection();
+        underTest.getConnection();
+
+        assertThatThrownBy(() -> underTest.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageStartingWith("all 2 connections in use");
+    }
+
+    @Test
+    void failedConnectionReturnsThePermit() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("down"));
+
+        assertThatThrownBy(() -> underTest.getConnection()).hasMessage("down");
+        assertThat(underTest.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void delegatesToTheConnection() throws SQLException {
+        Connection actual = underTest.getConnection();
+
+        actual.setAutoCommit(false);
+
+        verify(connection).setAutoCommit(false);
+        assertThat(actual).isEqualTo(actual).isNotEqualTo(connection);
+    }
+}
@@ -0,0 +1,80 @@
+package com.fenixs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class))
+            .withUserConfiguration(ReplicaRoutingConfig.class, TestConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:postgresql://primary:5432/customer",
+                    "customer.datasource.replicas[0].url=jdbc:postgresql://replica:5432/customer",
+                    "customer.datasource.max-lag=5s",
+                    "customer.virtual-threads.connection-wait=1s"
+            );
+
+    @Test
+    void replicaReadMethodsRunInAReplicaReadScope() {
+        contextRunner.run(context -> {
+            Reader reader = context.getBean(Reader.class);
+
+            assertThat(reader.replicaRead()).isTrue();
+            assertThat(reader.read()).isFalse();
+        });
+    }
+
+    @Test
+    void poolsAreUsedAsIsWithoutVirtualThreads() {
+        contextRunner.run(context ->
+                assertThat(context.getBean(ReplicaRoutingDataSource.class).getResolvedDataSources().values())
+                        .hasSize(2)
+                        .allSatisfy(dataSource -> assertThat(dataSource).isInstanceOf(HikariDataSource.class)));
+    }
+
+    @Test
+    void poolsHandOutConnectionsThroughPermitsWithVirtualThreads() {
+        contextRunner.withPropertyValues("customer.virtual-threads.enabled=true").run(context ->
+                assertThat(context.getBean(ReplicaRoutingDataSource.class).getResolvedDataSources().values())
+                        .hasSize(2)
+                        .allSatisfy(dataSource -> assertThat(dataSource).isInstanceOf(ConnectionPermitDataSource.class)));
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableConfigurationProperties({ReplicaDataSourceProperties.class, VirtualThreadsProperties.class})
+    static class TestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        Reader reader() {
+            return new Reader();
+        }
+    }
+
+    static class Reader {
+
+        @ReplicaRead
+        public boolean replicaRead() {
+            return ReplicaRoutingDataSource.replicaReads();
+        }
+
+        public boolean read() {
+            return ReplicaRoutingDataSource.replicaReads();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.fenixs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest extends AbstractTestcontainer {
+
+    @Container
+    private static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("fenixs-dao-replica-test")
+            .withUsername("fenixs")
+            .withPassword("password");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReplicaRoutingDataSource underTest;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static HikariDataSource pool(String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("fenixs");
+        dataSource.setPassword("password");
+        dataSource.setConnectionTimeout(1000);
+        return dataSource;
+    }
+
+    private void setUp(String... replicaUrls) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            replicas.put("replica-" + (i + 1), pool(replicaUrls[i]));
+        }
+        underTest = new ReplicaRoutingDataSource(pool(container.getJdbcUrl()), replicas, Duration.ofSeconds(5), meterRegistry);
+        underTest.afterPropertiesSet();
+        jdbcTemplate = new JdbcTemplate(underTest);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(underTest);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @BeforeEach
+    void setUp() {
+        setUp(replica.getJdbcUrl());
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        underTest.destroy();
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+    }
+
+    private String database(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> database());
+    }
+
+    private static String replicaRead(Supplier<String> read) {
+        boolean outer = ReplicaRoutingDataSource.beginReplicaReads();
+        try {
+            return read.get();
+        } finally {
+            ReplicaRoutingDataSource.endReplicaReads(outer);
+        }
+    }
+
+    private String replicaReadIn(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> replicaRead(this::database));
+    }
+
+    private double routed(String pool) {
+        return meterRegistry.get("customer.datasource.connections.routed").tag("pool", pool).counter().count();
+    }
+
+    @Test
+    void replicaReadsGoToTheReplicaOnceChecked() {
+        assertThat(replicaRead(this::database)).isEqualTo("fenixs-dao-unit-test");
+
+        underTest.checkReplicas();
+
+        assertThat(underTest.healthyReplicas()).containsExactly("replica-1");
+        assertThat(replicaRead(this::database)).isEqualTo("fenixs-dao-replica-test");
+        assertThat(replicaRead(() -> database(readOnly))).isEqualTo("fenixs-dao-replica-test");
+        assertThat(routed("replica-1")).isEqualTo(2);
+        assertThat(meterRegistry.get("customer.datasource.replica.lag").tag("pool", "replica-1").gauge().value())
+                .isZero();
+        assertThat(ReplicaRoutingDataSource.replicaReads()).isFalse();
+    }
+
+    @Test
+    void everythingOutsideReplicaReadsGoesToThePrimary() {
+        underTest.checkReplicas();
+
+        assertThat(database()).isEqualTo("fenixs-dao-unit-test");
+        assertThat(database(readOnly)).isEqualTo("fenixs-dao-unit-test");
+        assertThat(database(readWrite)).isEqualTo("fenixs-dao-unit-test");
+        assertThat(routed("replica-1")).isZero();
+    }
+
+    @Test
+    void replicaReadsInsideATransactionUseItsConnection() {
+        underTest.checkReplicas();
+
+        assertThat(replicaReadIn(readWrite)).isEqualTo("fenixs-dao-unit-test");
+        assertThat(routed("replica-1")).isZero();
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenNoReplicaIsHealthy() throws SQLException {
+        underTest.destroy();
+        setUp("jdbc:postgresql://localhost:1/unreachable");
+
+        underTest.checkReplicas();
+
+        assertThat(underTest.healthyReplicas()).isEmpty();
+        assertThat(replicaRead(this::database)).isEqualTo("fenixs-dao-unit-test");
+        assertThat(meterRegistry.get("customer.datasource.replica.fallbacks").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.datasource.replica.healthy").tag("pool", "replica-1").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void replicaThatCaughtUpWithThePrimaryHasNoLag() {
+        long tenMinutes = Duration.ofMinutes(10).toMillis();
+
+        assertThat(ReplicaRoutingDataSource.lagMillis(true, 5_000L, 5_000L, tenMinutes)).isZero();
+        assertThat(ReplicaRoutingDataSource.lagMillis(false, null, 5_000L, null)).isZero();
+    }
+
+    @Test
+    void replicaThatStoppedStreamingLagsOnceThePrimaryWrites() {
+        long tenMinutes = Duration.ofMinutes(10).toMillis();
+
+        // the receiver is gone, so everything it did receive is replayed, but the primary has moved on
+        assertThat(ReplicaRoutingDataSource.lagMillis(true, 5_000L, 6_000L, tenMinutes)).isEqualTo(tenMinutes);
+        // the primary could not be asked, only the replay age tells
+        assertThat(ReplicaRoutingDataSource.lagMillis(true, 5_000L, null, tenMinutes)).isEqualTo(tenMinutes);
+        // nothing replayed yet and behind the primary
+        assertThat(ReplicaRoutingDataSource.lagMillis(true, 5_000L, 6_000L, null)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCacheTest {
+
+    private CustomerCache underTest;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCache(new CustomerCacheProperties(100, Duration.ofMinutes(1)), new SimpleMeterRegistry());
+    }
+
+    private Optional<CustomerEntity> load(Long id) {
+        loads.incrementAndGet();
+        return id > 0 ? Optional.of(new CustomerEntity(id, "faker", "faker@gamil.com", 50)) : Optional.empty();
+    }
+
+    @Test
+    void get() {
+        underTest.get(1L, this::load);
+        Optional<CustomerEntity> actual = underTest.get(1L, this::load);
+
+        assertThat(actual).isPresent();
+        assertThat(loads).hasValue(1);
+        assertThat(underTest.stats().hitCount()).isEqualTo(1);
+        assertThat(underTest.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getDoesNotCacheMissingCustomers() {
+        underTest.get(-1L, this::load);
+        Optional<CustomerEntity> actual = underTest.get(-1L, this::load);
+
+        assertThat(actual).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void getAllLoadsMissingCustomersAtOnce() {
+        underTest.get(1L, this::load);
+
+        Map<Long, CustomerEntity> actual = underTest.getAll(List.of(1L, 2L, -1L), missing -> {
+            assertThat(missing).containsExactlyInAnyOrder(2L, -1L);
+            return Map.of(2L, new CustomerEntity(2L, "faker", "faker@gamil.com", 50));
+        });
+
+        assertThat(actual).containsOnlyKeys(1L, 2L);
+        assertThat(underTest.get(2L, this::load)).isPresent();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void getAllDoesNotCacheCustomersInvalidatedWhileLoading() {
+        Map<Long, CustomerEntity> actual = underTest.getAll(List.of(2L), missing -> {
+            underTest.invalidate(2L);
+            return Map.of(2L, new CustomerEntity(2L, "stale", "stale@gamil.com", 50));
+        });
+
+        assertThat(actual).containsOnlyKeys(2L);
+        assertThat(underTest.get(2L, this::load)).isPresent();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidate() {
+        underTest.get(1L, this::load);
+        underTest.invalidate(1L);
+        underTest.get(1L, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+}
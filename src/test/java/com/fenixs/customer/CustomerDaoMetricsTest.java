@@ -0,0 +1,112 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.DuplicateResourceException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerDaoMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = CustomerDaoMetrics.instrument(new CustomerListDataAccessService(), "list", meterRegistry);
+    }
+
+    private Timer calls(String method, String outcome) {
+        return meterRegistry.find(CustomerDaoMetrics.CALLS)
+                .tags("dao", "list", "method", method, "outcome", outcome)
+                .timer();
+    }
+
+    private DistributionSummary rows(String method) {
+        return meterRegistry.find(CustomerDaoMetrics.ROWS)
+                .tags("dao", "list", "method", method)
+                .summary();
+    }
+
+    @Test
+    void recordsCallsAndRowsPerMethod() {
+        underTest.selectCustomerById(1L);
+        underTest.selectCustomerById(-1L);
+        underTest.selectAllCustomers();
+
+        assertThat(calls("selectCustomerById", "success").count()).isEqualTo(2);
+        assertThat(rows("selectCustomerById").totalAmount()).isEqualTo(1);
+        assertThat(calls("selectAllCustomers", "success").count()).isEqualTo(1);
+        assertThat(rows("selectAllCustomers").totalAmount()).isEqualTo(2);
+        assertThat(calls("selectAllCustomers", "error")).isNull();
+    }
+
+    @Test
+    void registersMetersOncePerTagCombination() {
+        AtomicInteger registrations = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                registrations.incrementAndGet();
+                return id;
+            }
+        });
+        CustomerDao customerDao = CustomerDaoMetrics.instrument(new CustomerListDataAccessService(), "list", registry);
+
+        customerDao.selectCustomerById(1L);
+        int afterFirstCall = registrations.get();
+        customerDao.selectCustomerById(1L);
+        customerDao.selectCustomerById(-1L);
+
+        assertThat(afterFirstCall).isPositive();
+        assertThat(registrations).hasValue(afterFirstCall);
+    }
+
+    @Test
+    void countsStreamedRows() {
+        List<CustomerEntity> streamed = new ArrayList<>();
+
+        underTest.streamAllCustomers(streamed::add);
+
+        assertThat(streamed).hasSize(2);
+        assertThat(rows("streamAllCustomers").totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void countsRowsOfStreamedPages() {
+        List<Long> streamed = new ArrayList<>();
+
+        underTest.streamCustomersPage(CustomerFilter.NONE, 0L, 1, (id, name, email, age) -> streamed.add(id));
+
+        assertThat(streamed).hasSize(1);
+        assertThat(calls("streamCustomersPage", "success").count()).isEqualTo(1);
+        assertThat(rows("streamCustomersPage").totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsErrors() {
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(1L);
+        changes.setEmail("jamila@gmail.com");
+
+        assertThatThrownBy(() -> underTest.updateCustomer(changes))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        Timer errors = meterRegistry.find(CustomerDaoMetrics.CALLS)
+                .tags("method", "updateCustomer", "outcome", "error", "exception", "DuplicateResourceException")
+                .timer();
+        assertThat(errors).isNotNull();
+        assertThat(errors.count()).isEqualTo(1);
+    }
+}
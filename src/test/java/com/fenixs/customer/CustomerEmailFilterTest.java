@@ -0,0 +1,108 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailFilterTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerEmailFilter underTest;
+
+    private final List<CustomerEntity> customers = IntStream.range(0, 1000)
+            .mapToObj(i -> new CustomerEntity((long) i, "faker", "faker" + i + "@gmail.com", 30))
+            .toList();
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEmailFilter(
+                customerDao,
+                new CustomerEmailFilterProperties(1000, 0.01),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private void rebuild() {
+        doAnswer(invocation -> {
+            Consumer<CustomerEntity> action = invocation.getArgument(0);
+            customers.forEach(action);
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+        underTest.rebuild();
+    }
+
+    @Test
+    void existingEmailsQueriesDatabaseBeforeFirstBuild() {
+        when(customerDao.selectExistingEmails(List.of("faker@gmail.com"))).thenReturn(Set.of("faker@gmail.com"));
+
+        assertThat(underTest.existingEmails(List.of("faker@gmail.com"))).containsExactly("faker@gmail.com");
+        assertThat(underTest.stats().ready()).isFalse();
+    }
+
+    @Test
+    void existingEmailsAnswersDefiniteNegativesWithoutQuery() {
+        rebuild();
+
+        assertThat(underTest.existingEmails(List.of("unknown@gmail.com"))).isEmpty();
+        verify(customerDao, never()).selectExistingEmails(any());
+    }
+
+    @Test
+    void filterHasNoFalseNegatives() {
+        rebuild();
+        underTest.add("new@gmail.com");
+        when(customerDao.selectExistingEmails(any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+        List<String> emails = Stream.concat(customers.stream().map(CustomerEntity::getEmail), Stream.of("new@gmail.com"))
+                .toList();
+
+        assertThat(underTest.existingEmails(emails)).containsExactlyInAnyOrderElementsOf(emails);
+    }
+
+    @Test
+    void rebuildSizesFilterFromCustomerCount() {
+        when(customerDao.estimateCustomerCount()).thenReturn(100_000L);
+
+        rebuild();
+
+        assertThat(underTest.stats().sizeInBytes()).isEqualTo(new EmailBloomFilter(150_000, 0.01).sizeInBytes());
+    }
+
+    @Test
+    void existingEmailsOnlyQueriesCandidates() {
+        rebuild();
+        when(customerDao.selectExistingEmails(Set.of("faker1@gmail.com"))).thenReturn(Set.of("faker1@gmail.com"));
+
+        Set<String> actual = underTest.existingEmails(List.of("faker1@gmail.com", "unknown@gmail.com"));
+
+        assertThat(actual).containsExactly("faker1@gmail.com");
+    }
+
+    @Test
+    void stats() {
+        rebuild();
+
+        CustomerEmailFilterStats actual = underTest.stats();
+
+        assertThat(actual.ready()).isTrue();
+        assertThat(actual.entries()).isEqualTo(customers.size());
+        assertThat(actual.sizeInBytes()).isPositive();
+    }
+}
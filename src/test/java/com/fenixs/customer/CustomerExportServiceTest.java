@@ -0,0 +1,64 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerExportServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerExportService underTest;
+
+    private final List<CustomerEntity> customers = List.of(
+            new CustomerEntity(1L, "Alex", "alex@gmail.com", 21),
+            new CustomerEntity(2L, "Smith, \"Jr\"", "jr@gmail.com", 40)
+    );
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerExportService(customerDao, new ObjectMapper());
+        doAnswer(invocation -> {
+            Consumer<CustomerEntity> action = invocation.getArgument(0);
+            customers.forEach(action);
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+    }
+
+    @Test
+    void exportCustomersAsNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        underTest.exportCustomers(CustomerExportFormat.NDJSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                {"id":1,"name":"Alex","email":"alex@gmail.com","age":21}
+                {"id":2,"name":"Smith, \\"Jr\\"","email":"jr@gmail.com","age":40}
+                """);
+    }
+
+    @Test
+    void exportCustomersAsCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        underTest.exportCustomers(CustomerExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,name,email,age
+                1,Alex,alex@gmail.com,21
+                2,"Smith, ""Jr\"\"\",jr@gmail.com,40
+                """);
+    }
+}
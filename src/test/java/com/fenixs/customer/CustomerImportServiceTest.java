@@ -0,0 +1,128 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fenixs.AbstractTestcontainer;
+import com.fenixs.exception.RequestValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerImportServiceTest extends AbstractTestcontainer {
+
+    private CustomerImportService underTest;
+    private CustomerJDBCDataAccessService customerDao;
+    private CustomerEmailFilter customerEmailFilter;
+    private CustomerStatistics customerStatistics;
+    private CustomerResponseCache customerResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJDBCTemplate();
+        customerDao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+        customerEmailFilter = new CustomerEmailFilter(
+                customerDao,
+                new CustomerEmailFilterProperties(1000, 0.01),
+                new SimpleMeterRegistry()
+        );
+        customerEmailFilter.rebuild();
+        customerStatistics = new CustomerStatistics(
+                customerDao,
+                new CustomerStatisticsProperties(10, 10),
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+                new SimpleMeterRegistry()
+        );
+        customerStatistics.reconcile();
+        customerResponseCache = new CustomerResponseCache(
+                new CustomerResponseCacheProperties(100, DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new ObjectMapper(),
+                new SimpleMeterRegistry()
+        );
+        underTest = new CustomerImportService(getJDBCTemplate(), customerEmailFilter, customerStatistics, customerResponseCache);
+    }
+
+    @Test
+    void importCustomers() {
+        String existing = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerDao.insertCustomer(new CustomerEntity(FAKER.name().fullName(), existing, 20));
+        customerStatistics.reconcile();
+        long customers = customerStatistics.stats().customers();
+        String first = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String second = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        String csv = """
+                name,email,age
+                "Smith, Alex",%s,21
+                Jamila,%s,19
+                Repeated,%s,30
+                Existing,%s,40
+                ,missing-name@gmail.com,50
+                NoAge,no-age@gmail.com,abc
+                """.formatted(first, second, first, existing);
+
+        CustomerImportReport actual = underTest.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+
+        assertThat(actual.rowsRead()).isEqualTo(6);
+        assertThat(actual.inserted()).isEqualTo(2);
+        assertThat(actual.duplicates()).isEqualTo(2);
+        assertThat(actual.rejected()).isEqualTo(2);
+        assertThat(customerDao.existPersonWithEmail(first)).isTrue();
+        assertThat(customerDao.existPersonWithEmail(second)).isTrue();
+        assertThat(customerDao.existPersonWithEmail("no-age@gmail.com")).isFalse();
+        assertThat(customerEmailFilter.existingEmails(List.of(first, second))).containsExactlyInAnyOrder(first, second);
+        assertThat(customerStatistics.stats().customers()).isEqualTo(customers + 2);
+    }
+
+    @Test
+    void importCustomersFailsOnRaggedLine() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String csv = """
+                name,email,age
+                Alex,%s,21
+                Jamila,jamila@gmail.com,19,extra
+                """.formatted(email);
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                container.getJdbcUrl(), container.getUsername(), container.getPassword(), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        underTest = new CustomerImportService(jdbcTemplate, customerEmailFilter, customerStatistics, customerResponseCache);
+
+        try {
+            assertThatThrownBy(() -> underTest.importCustomers(
+                    new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true))
+                    .isInstanceOf(RequestValidationException.class)
+                    .hasMessageStartingWith("malformed CSV at line 3: ");
+
+            assertThat(customerDao.existPersonWithEmail(email)).isFalse();
+            assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('pg_temp.customer_import')::text", String.class))
+                    .isNull();
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void importCustomersFailsOnUnterminatedQuote() {
+        String csv = """
+                Alex,alex@gmail.com,21
+                "Jamila,jamila@gmail.com,19
+                """;
+
+        assertThatThrownBy(() -> underTest.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("malformed CSV");
+    }
+}
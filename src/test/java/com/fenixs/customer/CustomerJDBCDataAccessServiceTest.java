@@ -1,14 +1,18 @@
 package com.fenixs.customer;
 
 import com.fenixs.AbstractTestcontainer;
+import com.fenixs.exception.DuplicateResourceException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
 
@@ -32,6 +36,112 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersPage() {
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new CustomerEntity(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+        List<CustomerEntity> firstPage = underTest.selectCustomersPage(0L, 2);
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+
+        Long afterId = firstPage.get(1).getId();
+        List<CustomerEntity> nextPage = underTest.selectCustomersPage(afterId, 2);
+        assertThat(nextPage).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(afterId));
+    }
+
+    @Test
+    void selectCustomersPageWithFilter() {
+        String domain = UUID.randomUUID() + ".example.com";
+        CustomerEntity young = new CustomerEntity(FAKER.name().fullName(), "young@" + domain, 18);
+        CustomerEntity adult = new CustomerEntity(FAKER.name().fullName(), "adult@" + domain.toUpperCase(), 35);
+        CustomerEntity senior = new CustomerEntity(FAKER.name().fullName(), "senior@" + domain, 70);
+        CustomerEntity other = new CustomerEntity(FAKER.name().fullName(), "adult-" + UUID.randomUUID() + "@other.com", 35);
+        List.of(young, adult, senior, other).forEach(underTest::insertCustomer);
+
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(null, null, domain), 0L, 10))
+                .extracting(CustomerEntity::getEmail)
+                .containsExactly(young.getEmail(), adult.getEmail(), senior.getEmail());
+
+        List<CustomerEntity> firstPage = underTest.selectCustomersPage(new CustomerFilter(30, 80, domain), 0L, 1);
+        assertThat(firstPage).extracting(CustomerEntity::getEmail).containsExactly(adult.getEmail());
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(30, 80, domain), firstPage.get(0).getId(), 10))
+                .extracting(CustomerEntity::getEmail).containsExactly(senior.getEmail());
+
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(19, 69, null), 0L, 1000))
+                .extracting(CustomerEntity::getEmail)
+                .contains(adult.getEmail(), other.getEmail())
+                .doesNotContain(young.getEmail(), senior.getEmail());
+    }
+
+    @Test
+    void selectCustomerViewsPage() {
+        String domain = UUID.randomUUID() + ".example.com";
+        String email = "view@" + domain;
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 42));
+        Long id = underTest.selectCustomersPage(new CustomerFilter(null, null, domain), 0L, 1).get(0).getId();
+
+        List<CustomerView> actual = underTest.selectCustomerViewsPage(
+                new CustomerFilter(null, null, domain), EnumSet.of(CustomerField.ID, CustomerField.EMAIL), 0L, 10);
+
+        assertThat(actual).containsExactly(new CustomerView(id, null, email, null));
+    }
+
+    @Test
+    void selectCustomersByName() {
+        String unique = UUID.randomUUID().toString();
+        CustomerEntity first = new CustomerEntity("Search " + unique + " One", FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+        CustomerEntity second = new CustomerEntity("search " + unique + " two", FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+        CustomerEntity wildcard = new CustomerEntity("100% " + unique, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+        underTest.insertCustomer(wildcard);
+
+        List<CustomerEntity> contains = underTest.selectCustomersByName(unique.toUpperCase(), CustomerNameMatch.CONTAINS, 0L, 10);
+        assertThat(contains).extracting(CustomerEntity::getName)
+                .containsExactly(first.getName(), second.getName(), wildcard.getName());
+
+        List<CustomerEntity> nextPage = underTest.selectCustomersByName(unique, CustomerNameMatch.CONTAINS, contains.get(0).getId(), 1);
+        assertThat(nextPage).extracting(CustomerEntity::getName).containsExactly(second.getName());
+
+        assertThat(underTest.selectCustomersByName("search " + unique, CustomerNameMatch.PREFIX, 0L, 10))
+                .extracting(CustomerEntity::getName).containsExactly(first.getName(), second.getName());
+        assertThat(underTest.selectCustomersByName("100% " + unique, CustomerNameMatch.PREFIX, 0L, 10))
+                .extracting(CustomerEntity::getName).containsExactly(wildcard.getName());
+        assertThat(underTest.selectCustomersByName("1%0 " + unique, CustomerNameMatch.CONTAINS, 0L, 10)).isEmpty();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 20));
+
+        List<CustomerEntity> actual = new ArrayList<>();
+        underTest.streamAllCustomers(actual::add);
+
+        assertThat(actual).hasSameSizeAs(underTest.selectAllCustomers())
+                .anySatisfy(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void estimateCustomerCount() {
+        underTest.insertCustomer(new CustomerEntity(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        ));
+        getJDBCTemplate().execute("ANALYZE customer");
+
+        long actual = underTest.estimateCustomerCount();
+
+        assertThat(actual).isEqualTo(underTest.selectAllCustomers().size());
+    }
+
     @Test
     void selectCustomerById() {
         String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
@@ -63,6 +173,20 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    void selectCustomersByIds() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long first = underTest.insertCustomer(new CustomerEntity("first", "first-" + email, 20)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("second", "second-" + email, 30)).orElseThrow();
+
+        assertThat(underTest.selectCustomersByIds(List.of(second, -1L, first)))
+                .containsExactlyInAnyOrder(
+                        new CustomerEntity(first, "first", "first-" + email, 20),
+                        new CustomerEntity(second, "second", "second-" + email, 30)
+                );
+        assertThat(underTest.selectCustomersByIds(List.of())).isEmpty();
+    }
+
     @Test
     void insertCustomer() {
         CustomerEntity customer = new CustomerEntity(
@@ -70,9 +194,42 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
                 FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
                 20
         );
-        underTest.insertCustomer(customer);
+        Optional<Long> id = underTest.insertCustomer(customer);
+
+        assertThat(id).isPresent();
+        assertThat(underTest.selectCustomerById(id.get())).isPresent()
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(customer.getEmail()));
+    }
+
+    @Test
+    void insertCustomerReturnsEmptyWhenEmailTaken() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 20));
 
+        Optional<Long> actual = underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 30));
 
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomers() {
+        List<CustomerEntity> customers = List.of(
+                new CustomerEntity(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20),
+                new CustomerEntity(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 30)
+        );
+        underTest.insertCustomers(customers);
+
+        List<String> emails = customers.stream().map(CustomerEntity::getEmail).toList();
+        assertThat(underTest.selectExistingEmails(emails)).containsExactlyInAnyOrderElementsOf(emails);
+    }
+
+    @Test
+    void selectExistingEmailsIgnoresUnknownEmails() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 20));
+        String unknown = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        assertThat(underTest.selectExistingEmails(List.of(email, unknown))).containsExactly(email);
     }
 
     @Test
@@ -218,7 +375,8 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
         updateObject.setEmail(UUID.randomUUID().toString());
         updateObject.setAge(99);
 
-        underTest.updateCustomer(updateObject);
+        Optional<CustomerChange> change = underTest.updateCustomer(updateObject);
+        assertThat(change).hasValue(new CustomerChange(new CustomerEntity(id, name, email, 20), updateObject));
         Optional<CustomerEntity> actual = underTest.selectCustomerById(id);
         assertThat(actual).isPresent().hasValue(updateObject);
     }
@@ -249,6 +407,82 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
         });
     }
 
+    @Test
+    void updateCustomerBumpsVersion() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", email, 20)).orElseThrow();
+        assertThat(underTest.selectCustomerById(id)).map(CustomerEntity::getVersion).hasValue(0L);
+
+        CustomerEntity unchanged = new CustomerEntity();
+        unchanged.setId(id);
+        unchanged.setName("faker");
+        assertThat(underTest.updateCustomer(unchanged)).isEmpty();
+
+        CustomerEntity updateObject = new CustomerEntity();
+        updateObject.setId(id);
+        updateObject.setName("fakeName");
+        updateObject.setVersion(0L);
+
+        Optional<CustomerChange> change = underTest.updateCustomer(updateObject);
+        assertThat(change).hasValueSatisfying(c -> {
+            assertThat(c.previous().getVersion()).isEqualTo(0L);
+            assertThat(c.current().getVersion()).isEqualTo(1L);
+        });
+        assertThat(underTest.selectCustomerById(id)).map(CustomerEntity::getVersion).hasValue(1L);
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyWhenVersionIsStale() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", email, 20)).orElseThrow();
+        CustomerEntity first = new CustomerEntity();
+        first.setId(id);
+        first.setAge(21);
+        underTest.updateCustomer(first);
+
+        CustomerEntity stale = new CustomerEntity();
+        stale.setId(id);
+        stale.setName("fakeName");
+        stale.setVersion(0L);
+
+        assertThat(underTest.updateCustomer(stale)).isEmpty();
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("faker");
+            assertThat(c.getVersion()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyWhenIdNotExists() {
+        CustomerEntity updateObject = new CustomerEntity();
+        updateObject.setId(-1L);
+        updateObject.setName("faker");
+
+        assertThat(underTest.updateCustomer(updateObject)).isEmpty();
+    }
+
+    @Test
+    void updateCustomerFailWhenEmailTaken() {
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), takenEmail, 20));
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new CustomerEntity(FAKER.name().fullName(), email, 20));
+        Long id = underTest.selectAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(CustomerEntity::getId)
+                .findFirst()
+                .orElseThrow();
+
+        CustomerEntity updateObject = new CustomerEntity();
+        updateObject.setId(id);
+        updateObject.setEmail(takenEmail);
+
+        assertThatThrownBy(() -> underTest.updateCustomer(updateObject))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+
     @Test
     void deleteCustomerById() {
         String name = FAKER.name().fullName();
@@ -261,8 +495,86 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainer {
                 .map(CustomerEntity::getId)
                 .findFirst()
                 .orElseThrow();
-        underTest.deleteCustomerById(id);
+        assertThat(underTest.deleteCustomerById(id)).hasValue(new CustomerEntity(id, name, email, 20));
         Optional<CustomerEntity> actual = underTest.selectCustomerById(id);
         assertThat(actual).isNotPresent();
+        assertThat(underTest.deleteCustomerById(id)).isEmpty();
+    }
+    @Test
+    void updateCustomers() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long first = underTest.insertCustomer(new CustomerEntity("first", "first-" + email, 20)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("second", "second-" + email, 30)).orElseThrow();
+
+        CustomerEntity rename = new CustomerEntity();
+        rename.setId(first);
+        rename.setName("renamed");
+        CustomerEntity unchanged = new CustomerEntity();
+        unchanged.setId(second);
+        unchanged.setAge(30);
+        CustomerEntity missing = new CustomerEntity();
+        missing.setId(-1L);
+        missing.setAge(40);
+
+        List<CustomerChange> actual = underTest.updateCustomers(List.of(rename, unchanged, missing));
+
+        assertThat(actual).containsExactly(new CustomerChange(
+                new CustomerEntity(first, "first", "first-" + email, 20),
+                new CustomerEntity(first, "renamed", "first-" + email, 20)
+        ));
+        assertThat(actual.get(0).previous().getVersion()).isEqualTo(0L);
+        assertThat(actual.get(0).current().getVersion()).isEqualTo(1L);
+        assertThat(underTest.selectCustomerById(second)).map(CustomerEntity::getVersion).hasValue(0L);
+        assertThat(underTest.updateCustomers(List.of())).isEmpty();
+    }
+
+    @Test
+    void updateCustomersFailWhenEmailTaken() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long first = underTest.insertCustomer(new CustomerEntity("first", "first-" + email, 20)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("second", "second-" + email, 30)).orElseThrow();
+
+        CustomerEntity rename = new CustomerEntity();
+        rename.setId(first);
+        rename.setName("renamed");
+        CustomerEntity taken = new CustomerEntity();
+        taken.setId(second);
+        taken.setEmail("first-" + email);
+
+        assertThatThrownBy(() -> underTest.updateCustomers(List.of(rename, taken)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+        assertThat(underTest.selectCustomerById(first)).map(CustomerEntity::getName).hasValue("first");
+    }
+
+    @Test
+    void deleteCustomersByIds() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long first = underTest.insertCustomer(new CustomerEntity("first", "first-" + email, 20)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("second", "second-" + email, 30)).orElseThrow();
+
+        assertThat(underTest.deleteCustomersByIds(List.of(second, -1L, first)))
+                .containsExactlyInAnyOrder(
+                        new CustomerEntity(first, "first", "first-" + email, 20),
+                        new CustomerEntity(second, "second", "second-" + email, 30)
+                );
+        assertThat(underTest.selectCustomersByIds(List.of(first, second))).isEmpty();
+        assertThat(underTest.deleteCustomersByIds(List.of(first))).isEmpty();
+    }
+
+    @Test
+    void deleteCustomersWithFilter() {
+        String domain = UUID.randomUUID() + ".example.com";
+        Long first = underTest.insertCustomer(new CustomerEntity("first", "first@" + domain, 20)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("second", "second@" + domain, 30)).orElseThrow();
+        Long third = underTest.insertCustomer(new CustomerEntity("third", "third@" + domain, 40)).orElseThrow();
+        CustomerFilter filter = new CustomerFilter(25, null, domain);
+
+        assertThat(underTest.deleteCustomers(filter, 1)).containsExactly(
+                new CustomerEntity(second, "second", "second@" + domain, 30));
+        assertThat(underTest.deleteCustomers(filter, 10)).containsExactly(
+                new CustomerEntity(third, "third", "third@" + domain, 40));
+        assertThat(underTest.deleteCustomers(filter, 10)).isEmpty();
+        assertThat(underTest.selectCustomerById(first)).isPresent();
     }
 }
\ No newline at end of file
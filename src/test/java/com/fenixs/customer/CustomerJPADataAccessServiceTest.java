@@ -3,10 +3,22 @@ package com.fenixs.customer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 class CustomerJPADataAccessServiceTest {
@@ -31,21 +43,100 @@ class CustomerJPADataAccessServiceTest {
     @Test
     void selectAllCustomers() {
         underTest.selectAllCustomers();
-        verify(repository).findAll();
+        verify(repository).findAllDetached();
+    }
+
+    @Test
+    void selectCustomersPage() {
+        Long afterId = 10L;
+        int limit = 20;
+        underTest.selectCustomersPage(afterId, limit);
+        verify(repository).findPageDetached(afterId, PageRequest.of(0, limit));
+    }
+
+    @Test
+    void selectCustomersPageWithFilter() {
+        CustomerFilter filter = new CustomerFilter(18, 30, "gmail.com");
+        underTest.selectCustomersPage(filter, 10L, 20);
+        verify(repository).findPage(filter, 10L, 20);
+    }
+
+    @Test
+    void streamCustomersPage() {
+        CustomerFilter filter = new CustomerFilter(18, 30, "gmail.com");
+        underTest.streamCustomersPage(filter, 10L, 20, (id, name, email, age) -> {
+        });
+        verify(repository).findPage(filter, 10L, 20);
+    }
+
+    @Test
+    void selectCustomerViewsPage() {
+        underTest.selectCustomerViewsPage(CustomerFilter.NONE, CustomerField.ALL, 10L, 20);
+        verify(repository).findViewPage(CustomerFilter.NONE, CustomerField.ALL, 10L, 20);
+    }
+
+    @Test
+    void selectCustomersByName() {
+        underTest.selectCustomersByName("50%_off", CustomerNameMatch.CONTAINS, 10L, 20);
+        verify(repository).searchByName("%50\\%\\_off%", 10L, 20);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        when(repository.streamAllCustomers()).thenReturn(Stream.empty());
+        underTest.streamAllCustomers(c -> {});
+        verify(repository).streamAllCustomers();
     }
 
     @Test
     void selectCustomerById() {
         Long id = 1L;
         underTest.selectCustomerById(id);
-        verify(repository).findById(id);
+        verify(repository).findByIdDetached(id);
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        List<Long> ids = List.of(1L, 2L);
+        underTest.selectCustomersByIds(ids);
+        verify(repository).findAllByIdDetached(ids);
+    }
+
+    @Test
+    void selectCustomersByIdsSkipsQueryWhenEmpty() {
+        assertThat(underTest.selectCustomersByIds(List.of())).isEmpty();
+        verify(repository, never()).findAllByIdDetached(any());
     }
 
     @Test
     void insertCustomer() {
-        CustomerEntity mock = new CustomerEntity(1L, "faker", "faker@gamil.com", 3);
+        CustomerEntity mock = new CustomerEntity("faker", "faker@gamil.com", 3);
         underTest.insertCustomer(mock);
-        verify(repository).save(mock);
+        verify(repository).insertIfEmailAbsent(mock.getName(), mock.getEmail(), mock.getAge());
+    }
+
+    @Test
+    void insertCustomers() {
+        List<CustomerEntity> mocks = List.of(new CustomerEntity("faker", "faker@gamil.com", 3));
+        underTest.insertCustomers(mocks);
+        verify(repository).saveAll(mocks);
+        verify(repository).flushAndClear();
+    }
+
+    @Test
+    void insertCustomersFlushesInChunks() {
+        List<CustomerEntity> mocks = new ArrayList<>();
+        for (int i = 0; i < CustomerJPADataAccessService.INSERT_CHUNK_SIZE + 1; i++) {
+            mocks.add(new CustomerEntity("faker", "faker" + i + "@gamil.com", 3));
+        }
+
+        underTest.insertCustomers(mocks);
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).saveAll(mocks.subList(0, CustomerJPADataAccessService.INSERT_CHUNK_SIZE));
+        inOrder.verify(repository).flushAndClear();
+        inOrder.verify(repository).saveAll(mocks.subList(CustomerJPADataAccessService.INSERT_CHUNK_SIZE, mocks.size()));
+        inOrder.verify(repository).flushAndClear();
     }
 
     @Test
@@ -62,17 +153,96 @@ class CustomerJPADataAccessServiceTest {
         verify(repository).existsCustomerEntityByEmail(email);
     }
 
+    @Test
+    void selectExistingEmails() {
+        List<String> emails = List.of("faker@gamil.com");
+        underTest.selectExistingEmails(emails);
+        verify(repository).findExistingEmails(emails);
+    }
+
     @Test
     void updateCustomer() {
-        CustomerEntity mock = new CustomerEntity(1L, "faker", "faker@gamil.com", 3);
-        underTest.updateCustomer(mock);
-        verify(repository).save(mock);
+        CustomerEntity existing = new CustomerEntity(1L, "faker", "faker@gamil.com", 3);
+        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(1L);
+        changes.setAge(4);
+
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Optional<CustomerChange> actual = underTest.updateCustomer(changes);
+
+        verify(repository).saveAndFlush(new CustomerEntity(1L, "faker", "faker@gamil.com", 4));
+        assertThat(actual).hasValue(new CustomerChange(
+                new CustomerEntity(1L, "faker", "faker@gamil.com", 3),
+                new CustomerEntity(1L, "faker", "faker@gamil.com", 4)
+        ));
+    }
+
+    @Test
+    void updateCustomerSkipsSaveWhenNothingChanged() {
+        CustomerEntity existing = new CustomerEntity(1L, "faker", "faker@gamil.com", 3);
+        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+
+        assertThat(underTest.updateCustomer(new CustomerEntity(1L, "faker", "faker@gamil.com", 3))).isEmpty();
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateCustomerSkipsSaveWhenVersionIsStale() {
+        CustomerEntity existing = new CustomerEntity(1L, "faker", "faker@gamil.com", 3, 2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(1L);
+        changes.setAge(4);
+        changes.setVersion(1L);
+
+        assertThat(underTest.updateCustomer(changes)).isEmpty();
+        assertThat(existing.getAge()).isEqualTo(3);
+        verify(repository, never()).saveAndFlush(any());
     }
 
     @Test
     void deleteCustomerById() {
         Long id = 1L;
         underTest.deleteCustomerById(id);
-        verify(repository).deleteById(id);
+        verify(repository).deleteReturning(id);
+    }
+    @Test
+    void updateCustomers() {
+        CustomerEntity first = new CustomerEntity(1L, "faker", "faker@gamil.com", 3);
+        CustomerEntity second = new CustomerEntity(2L, "other", "other@gamil.com", 5);
+        when(repository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+        CustomerEntity older = new CustomerEntity();
+        older.setId(1L);
+        older.setAge(4);
+        CustomerEntity unchanged = new CustomerEntity();
+        unchanged.setId(2L);
+        unchanged.setAge(5);
+        CustomerEntity missing = new CustomerEntity();
+        missing.setId(3L);
+        missing.setAge(6);
+
+        List<CustomerChange> actual = underTest.updateCustomers(List.of(older, unchanged, missing));
+
+        assertThat(actual).containsExactly(new CustomerChange(
+                new CustomerEntity(1L, "faker", "faker@gamil.com", 3),
+                new CustomerEntity(1L, "faker", "faker@gamil.com", 4)
+        ));
+        verify(repository).flush();
+    }
+
+    @Test
+    void deleteCustomersByIds() {
+        List<Long> ids = List.of(1L, 2L);
+        underTest.deleteCustomersByIds(ids);
+        verify(repository).deleteAllReturning(ids);
+    }
+
+    @Test
+    void deleteCustomers() {
+        CustomerFilter filter = new CustomerFilter(18, 30, "gmail.com");
+        underTest.deleteCustomers(filter, 20);
+        verify(repository).deletePage(filter, 20);
     }
 }
\ No newline at end of file
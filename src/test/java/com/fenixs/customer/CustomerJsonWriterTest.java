@@ -0,0 +1,56 @@
+package com.fenixs.customer;
+
+import com.fenixs.AbstractTestcontainer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerJsonWriterTest extends AbstractTestcontainer {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CustomerJDBCDataAccessService customerDao;
+    private CustomerJsonWriter underTest;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = new CustomerJDBCDataAccessService(getJDBCTemplate(), new CustomerRowMapper());
+        underTest = new CustomerJsonWriter(customerDao, objectMapper);
+    }
+
+    @Test
+    void writePageMatchesSerializedCustomerPage() throws IOException {
+        String domain = UUID.randomUUID() + ".example.com";
+        customerDao.insertCustomer(new CustomerEntity("Zoë \"Quotes\" O'Brien", "zoe@" + domain, 30));
+        customerDao.insertCustomer(new CustomerEntity("Back\\slash\ttab", "back@" + domain, 40));
+        customerDao.insertCustomer(new CustomerEntity("名前", "name@" + domain, 50));
+        CustomerFilter filter = new CustomerFilter(null, null, domain);
+
+        List<CustomerEntity> customers = customerDao.selectCustomersPage(filter, 0L, 3);
+        CustomerPage firstPage = CustomerService.toPage(customers, 2);
+        CustomerPage lastPage = CustomerService.toPage(customers.subList(2, 3), 2);
+
+        assertThat(write(filter, 0L, 2)).isEqualTo(objectMapper.writeValueAsString(firstPage));
+        assertThat(write(filter, customers.get(1).getId(), 2)).isEqualTo(objectMapper.writeValueAsString(lastPage));
+    }
+
+    @Test
+    void writeEmptyPage() throws IOException {
+        CustomerFilter filter = new CustomerFilter(null, null, UUID.randomUUID() + ".example.com");
+
+        assertThat(write(filter, 0L, 10)).isEqualTo("{\"customers\":[],\"nextCursor\":null}");
+    }
+
+    private String write(CustomerFilter filter, Long afterId, int limit) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        underTest.writePage(filter, afterId, limit, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,306 @@
+package com.fenixs.customer;
+
+import com.fenixs.exception.DuplicateResourceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertCustomer() {
+        Optional<Long> id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30));
+
+        assertThat(id).isPresent();
+        assertThat(underTest.selectCustomerById(id.get())).hasValue(new CustomerEntity(id.get(), "faker", "faker@gamil.com", 30));
+        assertThat(underTest.existPersonWithId(id.get())).isTrue();
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isTrue();
+    }
+
+    @Test
+    void insertCustomerReturnsEmptyWhenEmailTaken() {
+        assertThat(underTest.insertCustomer(new CustomerEntity("alex", "alex@gmail.com", 30))).isEmpty();
+    }
+
+    @Test
+    void insertCustomersIsAllOrNothing() {
+        List<CustomerEntity> customers = List.of(
+                new CustomerEntity("faker", "faker@gamil.com", 30),
+                new CustomerEntity("alex", "alex@gmail.com", 30)
+        );
+
+        assertThatThrownBy(() -> underTest.insertCustomers(customers))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isFalse();
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+
+        assertThat(underTest.selectCustomersByIds(List.of(-1L, id)))
+                .containsExactly(new CustomerEntity(id, "faker", "faker@gamil.com", 30));
+    }
+
+    @Test
+    void selectCustomersPage() {
+        List<CustomerEntity> firstPage = underTest.selectCustomersPage(0L, 1);
+        List<CustomerEntity> nextPage = underTest.selectCustomersPage(firstPage.get(0).getId(), 10);
+
+        assertThat(firstPage).extracting(CustomerEntity::getEmail).containsExactly("alex@gmail.com");
+        assertThat(nextPage).extracting(CustomerEntity::getEmail).containsExactly("jamila@gmail.com");
+    }
+
+    @Test
+    void selectCustomersPageWithFilter() {
+        underTest.insertCustomer(new CustomerEntity("Maria", "maria@Example.com", 40));
+
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(20, null, "gmail.com"), 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("alex@gmail.com");
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(null, 40, "example.com"), 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("maria@Example.com");
+        assertThat(underTest.selectCustomersPage(new CustomerFilter(null, 20, null), 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("jamila@gmail.com");
+    }
+
+    @Test
+    void streamCustomersPage() {
+        List<String> emails = new ArrayList<>();
+
+        underTest.streamCustomersPage(new CustomerFilter(20, null, null), 0L, 10,
+                (id, name, email, age) -> emails.add(new String(email, StandardCharsets.UTF_8)));
+
+        assertThat(emails).containsExactly("alex@gmail.com");
+    }
+
+    @Test
+    void selectCustomerViewsPage() {
+        assertThat(underTest.selectCustomerViewsPage(new CustomerFilter(20, null, null), EnumSet.of(CustomerField.ID, CustomerField.NAME), 0L, 10))
+                .containsExactly(new CustomerView(1L, "Alex", null, null));
+    }
+
+    @Test
+    void selectCustomersByName() {
+        assertThat(underTest.selectCustomersByName("AL", CustomerNameMatch.PREFIX, 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("alex@gmail.com");
+        assertThat(underTest.selectCustomersByName("mil", CustomerNameMatch.CONTAINS, 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("jamila@gmail.com");
+        assertThat(underTest.selectCustomersByName("mil", CustomerNameMatch.PREFIX, 0L, 10)).isEmpty();
+    }
+
+    @Test
+    void updateCustomerReplacesInsteadOfAppending() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setEmail("new@gamil.com");
+
+        Optional<CustomerChange> actual = underTest.updateCustomer(changes);
+
+        assertThat(actual).hasValue(new CustomerChange(
+                new CustomerEntity(id, "faker", "faker@gamil.com", 30),
+                new CustomerEntity(id, "faker", "new@gamil.com", 30)
+        ));
+        assertThat(underTest.selectAllCustomers()).hasSize(3);
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isFalse();
+        assertThat(underTest.existPersonWithEmail("new@gamil.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerChecksAndBumpsVersion() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setAge(31);
+        changes.setVersion(0L);
+
+        assertThat(underTest.updateCustomer(changes))
+                .map(change -> change.current().getVersion())
+                .hasValue(1L);
+        changes.setAge(32);
+        assertThat(underTest.updateCustomer(changes)).isEmpty();
+        assertThat(underTest.selectCustomerById(id)).map(CustomerEntity::getAge).hasValue(31);
+    }
+
+    @Test
+    void updateCustomerFailWhenEmailTaken() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setEmail("alex@gmail.com");
+
+        assertThatThrownBy(() -> underTest.updateCustomer(changes))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    void deleteCustomerById() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+
+        assertThat(underTest.deleteCustomerById(id)).hasValue(new CustomerEntity(id, "faker", "faker@gamil.com", 30));
+
+        assertThat(underTest.selectCustomerById(id)).isEmpty();
+        assertThat(underTest.deleteCustomerById(id)).isEmpty();
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isFalse();
+    }
+
+    @Test
+    void concurrentInsertsKeepIdsAndEmailsUnique() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 20_000).parallel().forEach(i ->
+                underTest.insertCustomer(new CustomerEntity("faker", "faker" + (i % 5_000) + "@gamil.com", 30))
+                        .ifPresent(ids::add));
+
+        assertThat(ids).hasSize(5_000);
+        List<CustomerEntity> all = underTest.selectAllCustomers();
+        assertThat(all).hasSize(5_002);
+        assertThat(all.stream().map(CustomerEntity::getEmail).collect(Collectors.toSet())).hasSize(5_002);
+    }
+
+    @Test
+    void concurrentUpdatesAndDeletesKeepIndexConsistent() {
+        List<Long> ids = IntStream.range(0, 2_000)
+                .mapToObj(i -> underTest.insertCustomer(new CustomerEntity("faker", "faker" + i + "@gamil.com", 30)).orElseThrow())
+                .toList();
+
+        IntStream.range(0, ids.size()).parallel().forEach(i -> {
+            Long id = ids.get(i);
+            if (i % 2 == 0) {
+                underTest.deleteCustomerById(id);
+            } else {
+                CustomerEntity changes = new CustomerEntity();
+                changes.setId(id);
+                changes.setEmail("renamed" + i + "@gamil.com");
+                underTest.updateCustomer(changes);
+            }
+        });
+
+        List<CustomerEntity> all = underTest.selectAllCustomers();
+        assertThat(all).hasSize(1_002);
+        assertThat(all).allSatisfy(c -> assertThat(underTest.existPersonWithEmail(c.getEmail())).isTrue());
+        assertThat(underTest.existPersonWithEmail("faker0@gamil.com")).isFalse();
+        assertThat(underTest.existPersonWithEmail("faker1@gamil.com")).isFalse();
+    }
+    @Test
+    void concurrentUpdatesToTheSameEmailKeepItReserved() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                String email = "same" + round + "@gamil.com";
+                boolean bulk = round % 2 == 0;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Callable<Object>> writers = IntStream.range(0, 4)
+                        .mapToObj(i -> (Callable<Object>) () -> {
+                            CustomerEntity changes = new CustomerEntity();
+                            changes.setId(1L);
+                            changes.setEmail(email);
+                            start.await();
+                            return bulk && i % 2 == 0
+                                    ? underTest.updateCustomers(List.of(changes))
+                                    : underTest.updateCustomer(changes);
+                        })
+                        .toList();
+                List<Future<Object>> results = writers.stream().map(executor::submit).toList();
+                start.countDown();
+                for (Future<Object> result : results) {
+                    assertThat(result).succeedsWithin(Duration.ofSeconds(10));
+                }
+
+                assertThat(underTest.existPersonWithEmail(email)).isTrue();
+                assertThat(underTest.insertCustomer(new CustomerEntity("faker", email, 30))).isEmpty();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(underTest.selectCustomerById(1L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("same1999@gamil.com"));
+        assertThat(underTest.existPersonWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.existPersonWithEmail("same0@gamil.com")).isFalse();
+    }
+
+    @Test
+    void updateCustomers() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setAge(31);
+        CustomerEntity missing = new CustomerEntity();
+        missing.setId(-1L);
+        missing.setAge(31);
+
+        assertThat(underTest.updateCustomers(List.of(changes, missing))).containsExactly(new CustomerChange(
+                new CustomerEntity(id, "faker", "faker@gamil.com", 30),
+                new CustomerEntity(id, "faker", "faker@gamil.com", 31)
+        ));
+    }
+
+    @Test
+    void updateCustomersIsAllOrNothing() {
+        Long first = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("other", "other@gamil.com", 40)).orElseThrow();
+        CustomerEntity rename = new CustomerEntity();
+        rename.setId(first);
+        rename.setEmail("renamed@gamil.com");
+        CustomerEntity taken = new CustomerEntity();
+        taken.setId(second);
+        taken.setEmail("alex@gmail.com");
+
+        assertThatThrownBy(() -> underTest.updateCustomers(List.of(rename, taken)))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        assertThat(underTest.selectCustomerById(first)).map(CustomerEntity::getEmail).hasValue("faker@gamil.com");
+        assertThat(underTest.existPersonWithEmail("renamed@gamil.com")).isFalse();
+        assertThat(underTest.updateCustomers(List.of(rename))).hasSize(1);
+        assertThat(underTest.existPersonWithEmail("renamed@gamil.com")).isTrue();
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isFalse();
+    }
+
+    @Test
+    void deleteCustomersByIds() {
+        Long id = underTest.insertCustomer(new CustomerEntity("faker", "faker@gamil.com", 30)).orElseThrow();
+
+        assertThat(underTest.deleteCustomersByIds(List.of(-1L, id)))
+                .containsExactly(new CustomerEntity(id, "faker", "faker@gamil.com", 30));
+        assertThat(underTest.existPersonWithEmail("faker@gamil.com")).isFalse();
+    }
+
+    @Test
+    void deleteCustomersWithFilter() {
+        Long first = underTest.insertCustomer(new CustomerEntity("faker", "faker@fenixs.com", 30)).orElseThrow();
+        Long second = underTest.insertCustomer(new CustomerEntity("other", "other@fenixs.com", 40)).orElseThrow();
+        CustomerFilter filter = new CustomerFilter(null, null, "fenixs.com");
+
+        assertThat(underTest.deleteCustomers(filter, 1))
+                .containsExactly(new CustomerEntity(first, "faker", "faker@fenixs.com", 30));
+        assertThat(underTest.deleteCustomers(filter, 10))
+                .containsExactly(new CustomerEntity(second, "other", "other@fenixs.com", 40));
+        assertThat(underTest.existPersonWithEmail("alex@gmail.com")).isTrue();
+    }
+}
@@ -0,0 +1,117 @@
+package com.fenixs.customer;
+
+import com.fenixs.AbstractTestcontainer;
+import com.fenixs.exception.DuplicateResourceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerR2DBCDataAccessServiceTest extends AbstractTestcontainer {
+
+    private CustomerR2DBCDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2DBCDataAccessService(getDatabaseClient());
+    }
+
+    private CustomerEntity newCustomer() {
+        return new CustomerEntity(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+    }
+
+    @Test
+    void insertAndSelectCustomerById() {
+        CustomerEntity customer = newCustomer();
+
+        Long id = underTest.insertCustomer(customer).block();
+
+        assertThat(id).isNotNull();
+        assertThat(underTest.selectCustomerById(id).block())
+                .isEqualTo(new CustomerEntity(id, customer.getName(), customer.getEmail(), customer.getAge()));
+        assertThat(underTest.existPersonWithId(id).block()).isTrue();
+        assertThat(underTest.existPersonWithEmail(customer.getEmail()).block()).isTrue();
+    }
+
+    @Test
+    void insertCustomerCompletesEmptyWhenEmailTaken() {
+        CustomerEntity customer = newCustomer();
+        underTest.insertCustomer(customer).block();
+
+        assertThat(underTest.insertCustomer(customer).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void selectCustomerByIdCompletesEmptyWhenMissing() {
+        assertThat(underTest.selectCustomerById(-1L).blockOptional()).isEmpty();
+        assertThat(underTest.existPersonWithId(-1L).block()).isFalse();
+    }
+
+    @Test
+    void selectAllCustomersIsOrderedById() {
+        Long id = underTest.insertCustomer(newCustomer()).block();
+
+        List<CustomerEntity> actual = underTest.selectAllCustomers().collectList().block();
+
+        assertThat(actual).extracting(CustomerEntity::getId).isSorted().contains(id);
+    }
+
+    @Test
+    void selectCustomersPage() {
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(newCustomer()).block();
+        }
+
+        List<CustomerEntity> firstPage = underTest.selectCustomersPage(0L, 2).collectList().block();
+        assertThat(firstPage).hasSize(2);
+
+        Long afterId = firstPage.get(1).getId();
+        assertThat(underTest.selectCustomersPage(afterId, 2).collectList().block())
+                .isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(afterId));
+    }
+
+    @Test
+    void updateCustomer() {
+        Long id = underTest.insertCustomer(newCustomer()).block();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setAge(42);
+
+        CustomerEntity actual = underTest.updateCustomer(changes).block();
+
+        assertThat(actual.getAge()).isEqualTo(42);
+        assertThat(underTest.updateCustomer(changes).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void updateCustomerToTakenEmail() {
+        CustomerEntity other = newCustomer();
+        underTest.insertCustomer(other).block();
+        Long id = underTest.insertCustomer(newCustomer()).block();
+        CustomerEntity changes = new CustomerEntity();
+        changes.setId(id);
+        changes.setEmail(other.getEmail());
+
+        assertThatThrownBy(() -> underTest.updateCustomer(changes).block())
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+
+    @Test
+    void deleteCustomerById() {
+        Long id = underTest.insertCustomer(newCustomer()).block();
+
+        assertThat(underTest.deleteCustomerById(id).block()).isTrue();
+        assertThat(underTest.deleteCustomerById(id).block()).isFalse();
+        assertThat(underTest.selectCustomerById(id).blockOptional()).isEmpty();
+    }
+}
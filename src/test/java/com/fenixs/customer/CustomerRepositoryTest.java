@@ -1,13 +1,18 @@
 package com.fenixs.customer;
 
 import com.fenixs.AbstractTestcontainer;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -22,6 +27,9 @@ class CustomerRepositoryTest extends AbstractTestcontainer {
     @Autowired
     private ApplicationContext context;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @BeforeEach
     void setup() {
         underTest.deleteAll();
@@ -47,6 +55,24 @@ class CustomerRepositoryTest extends AbstractTestcontainer {
         assertThat(actual).isTrue();
     }
 
+    @Test
+    void saveAllTakesIdsFromOnePooledBlock() {
+        List<CustomerEntity> customers = List.of(
+                new CustomerEntity("first", "first-" + UUID.randomUUID(), 20),
+                new CustomerEntity("second", "second-" + UUID.randomUUID(), 30),
+                new CustomerEntity("third", "third-" + UUID.randomUUID(), 40)
+        );
+
+        underTest.saveAll(customers);
+        underTest.flushAndClear();
+
+        List<Long> ids = customers.stream().map(CustomerEntity::getId).toList();
+        assertThat(ids.get(1)).isEqualTo(ids.get(0) + 1);
+        assertThat(ids.get(2)).isEqualTo(ids.get(0) + 2);
+        assertThat(underTest.findAllById(ids)).hasSize(3)
+                .allSatisfy(customer -> assertThat(customer.getVersion()).isZero());
+    }
+
     @Test
     void existsCustomerEntityByIdFailsWhenIdNotPresent() {
         Long id = -1L;
@@ -79,4 +105,118 @@ class CustomerRepositoryTest extends AbstractTestcontainer {
         boolean actual = underTest.existsCustomerEntityByEmail(email);
         assertThat(actual).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void insertIfEmailAbsent() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Optional<Long> actual = underTest.insertIfEmailAbsent(FAKER.name().fullName(), email, 20);
+        assertThat(actual).isPresent();
+        assertThat(underTest.existsCustomerEntityById(actual.get())).isTrue();
+    }
+
+    @Test
+    void insertIfEmailAbsentReturnsEmptyWhenEmailTaken() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), email, 20);
+        Optional<Long> actual = underTest.insertIfEmailAbsent(FAKER.name().fullName(), email, 30);
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void deleteReturning() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertIfEmailAbsent("faker", email, 20).orElseThrow();
+
+        assertThat(underTest.deleteReturning(id)).hasValue(new CustomerEntity(id, "faker", email, 20));
+        assertThat(underTest.existsCustomerEntityById(id)).isFalse();
+        assertThat(underTest.deleteReturning(id)).isEmpty();
+    }
+
+    @Test
+    void findPage() {
+        String domain = UUID.randomUUID() + ".example.com";
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), "young@" + domain, 18);
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), "adult@" + domain.toUpperCase(), 35);
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), "senior@" + domain, 70);
+        underTest.insertIfEmailAbsent(FAKER.name().fullName(), "adult@other.com", 35);
+
+        List<CustomerEntity> firstPage = underTest.findPage(new CustomerFilter(30, null, domain), 0L, 1);
+        assertThat(firstPage).extracting(CustomerEntity::getEmail).containsExactly("adult@" + domain.toUpperCase());
+
+        assertThat(underTest.findPage(new CustomerFilter(30, null, domain), firstPage.get(0).getId(), 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("senior@" + domain);
+        assertThat(underTest.findPage(new CustomerFilter(null, 20, null), 0L, 10))
+                .extracting(CustomerEntity::getEmail).containsExactly("young@" + domain);
+        assertThat(underTest.findPage(CustomerFilter.NONE, 0L, 10)).hasSize(4);
+    }
+
+    @Test
+    void findViewPage() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertIfEmailAbsent("faker", email, 42).orElseThrow();
+
+        assertThat(underTest.findViewPage(CustomerFilter.NONE, EnumSet.of(CustomerField.ID, CustomerField.AGE), 0L, 10))
+                .containsExactly(new CustomerView(id, null, null, 42));
+        assertThat(underTest.findViewPage(CustomerFilter.NONE, CustomerField.ALL, 0L, 10))
+                .containsExactly(new CustomerView(id, "faker", email, 42));
+    }
+
+    @Test
+    void detachedReadsAreNotManaged() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertIfEmailAbsent("faker", email, 42).orElseThrow();
+        CustomerEntity expected = new CustomerEntity(id, "faker", email, 42, 0L);
+
+        List<CustomerEntity> all = underTest.findAllDetached();
+        List<CustomerEntity> page = underTest.findPageDetached(id - 1, PageRequest.of(0, 10));
+        Optional<CustomerEntity> byId = underTest.findByIdDetached(id);
+
+        assertThat(all).containsExactly(expected);
+        assertThat(page).containsExactly(expected);
+        assertThat(byId).hasValue(expected);
+        assertThat(byId.get().getVersion()).isZero();
+        assertThat(entityManager.contains(all.get(0))).isFalse();
+        assertThat(entityManager.contains(page.get(0))).isFalse();
+        assertThat(entityManager.contains(byId.get())).isFalse();
+        assertThat(underTest.findPageDetached(id, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void findAllByIdDetached() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertIfEmailAbsent("faker", email, 42).orElseThrow();
+
+        List<CustomerEntity> actual = underTest.findAllByIdDetached(List.of(id, -1L));
+
+        assertThat(actual).containsExactly(new CustomerEntity(id, "faker", email, 42));
+        assertThat(entityManager.contains(actual.get(0))).isFalse();
+    }
+    @Test
+    void deleteAllReturning() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long first = underTest.insertIfEmailAbsent("first", "first-" + email, 20).orElseThrow();
+        Long second = underTest.insertIfEmailAbsent("second", "second-" + email, 30).orElseThrow();
+
+        List<CustomerEntity> actual = underTest.deleteAllReturning(List.of(second, -1L, first));
+
+        assertThat(actual).containsExactlyInAnyOrder(
+                new CustomerEntity(first, "first", "first-" + email, 20),
+                new CustomerEntity(second, "second", "second-" + email, 30)
+        );
+        assertThat(underTest.existsCustomerEntityById(first)).isFalse();
+        assertThat(underTest.existsCustomerEntityById(second)).isFalse();
+    }
+
+    @Test
+    void deletePage() {
+        String domain = UUID.randomUUID() + ".example.com";
+        Long first = underTest.insertIfEmailAbsent("first", "first@" + domain, 20).orElseThrow();
+        Long second = underTest.insertIfEmailAbsent("second", "second@" + domain, 30).orElseThrow();
+        Long other = underTest.insertIfEmailAbsent("other", "other@" + UUID.randomUUID() + ".example.com", 30).orElseThrow();
+        CustomerFilter filter = new CustomerFilter(null, null, domain);
+
+        assertThat(underTest.deletePage(filter, 1)).containsExactly(new CustomerEntity(first, "first", "first@" + domain, 20));
+        assertThat(underTest.deletePage(filter, 10)).containsExactly(new CustomerEntity(second, "second", "second@" + domain, 30));
+        assertThat(underTest.existsCustomerEntityById(other)).isTrue();
+    }
+}
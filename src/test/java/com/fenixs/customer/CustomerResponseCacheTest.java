@@ -0,0 +1,100 @@
+package com.fenixs.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fenixs.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerResponseCacheTest {
+
+    private CustomerResponseCache underTest;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerResponseCache(
+                new CustomerResponseCacheProperties(100, DataSize.ofKilobytes(1), Duration.ofMinutes(1)),
+                new ObjectMapper(),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private CustomerEntity load(Long id) {
+        loads.incrementAndGet();
+        if (id < 0) {
+            throw new ResourceNotFoundException("customer with id [%s] not found.".formatted(id));
+        }
+        return new CustomerEntity(id, "faker", "faker@gamil.com", 50, 3L);
+    }
+
+    private String page(CustomerFilter filter) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        underTest.writePage(filter, 0L, 10, buffer -> {
+            renders.incrementAndGet();
+            buffer.write("{\"customers\":[]}".getBytes(StandardCharsets.UTF_8));
+        }, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void customerIsEncodedOnce() {
+        underTest.customer(1L, this::load);
+        CustomerResponseCache.EncodedCustomer actual = underTest.customer(1L, this::load);
+
+        assertThat(new String(actual.json(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":1,\"name\":\"faker\",\"email\":\"faker@gamil.com\",\"age\":50}");
+        assertThat(actual.eTag()).isEqualTo("\"3\"");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void missingCustomerIsNotCached() {
+        assertThatThrownBy(() -> underTest.customer(-1L, this::load)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> underTest.customer(-1L, this::load)).isInstanceOf(ResourceNotFoundException.class);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidateDropsCustomerAndPages() throws IOException {
+        underTest.customer(1L, this::load);
+        page(CustomerFilter.NONE);
+
+        underTest.invalidate(1L);
+        underTest.customer(1L, this::load);
+        page(CustomerFilter.NONE);
+
+        assertThat(loads).hasValue(2);
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void pagesAreKeyedByQuery() throws IOException {
+        assertThat(page(CustomerFilter.NONE)).isEqualTo("{\"customers\":[]}");
+        assertThat(page(CustomerFilter.NONE)).isEqualTo("{\"customers\":[]}");
+        page(new CustomerFilter(18, null, null));
+
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void invalidatePages() throws IOException {
+        page(CustomerFilter.NONE);
+        underTest.invalidatePages();
+        page(CustomerFilter.NONE);
+
+        assertThat(renders).hasValue(2);
+    }
+}
@@ -1,16 +1,33 @@
 package com.fenixs.customer;
 
 import com.fenixs.exception.DuplicateResourceException;
+import com.fenixs.exception.PreconditionFailedException;
 import com.fenixs.exception.RequestValidationException;
 import com.fenixs.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -22,17 +39,162 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDao customerDao;
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+    @Mock
+    private CustomerStatistics customerStatistics;
+    @Mock
+    private CustomerJsonWriter customerJsonWriter;
+    private CustomerResponseCache customerResponseCache;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao);
+        CustomerCache customerCache = new CustomerCache(
+                new CustomerCacheProperties(100, Duration.ofMinutes(1)),
+                new SimpleMeterRegistry()
+        );
+        customerResponseCache = new CustomerResponseCache(
+                new CustomerResponseCacheProperties(100, DataSize.ofMegabytes(1), Duration.ofMinutes(1)),
+                new ObjectMapper(),
+                new SimpleMeterRegistry()
+        );
+        lenient().when(customerStatistics.recording(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        underTest = new CustomerService(customerDao, customerCache, customerEmailFilter, customerStatistics,
+                customerJsonWriter, customerResponseCache);
+    }
+
+    @Test
+    void writeCustomers() throws IOException {
+        stubWritePage("{\"customers\":[]}");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        underTest.writeCustomers(new CustomerFilter(18, null, "Gmail.com"), CustomerService.encodeCursor(7L), null, outputStream);
+
+        verify(customerJsonWriter).writePage(
+                eq(new CustomerFilter(18, null, "gmail.com")), eq(7L), eq(CustomerService.DEFAULT_PAGE_SIZE), any());
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("{\"customers\":[]}");
+    }
+
+    @Test
+    void writeCustomersServesSnapshotUntilWrite() throws IOException {
+        stubWritePage("{}");
+        underTest.writeCustomers(CustomerFilter.NONE, null, null, OutputStream.nullOutputStream());
+        underTest.writeCustomers(CustomerFilter.NONE, null, null, OutputStream.nullOutputStream());
+        verify(customerJsonWriter, times(1)).writePage(any(), any(), anyInt(), any());
+
+        when(customerDao.deleteCustomerById(1L))
+                .thenReturn(Optional.of(new CustomerEntity(1L, "faker", "faker@gamil.com", 50)));
+        underTest.deleteCustomerById(1L);
+        underTest.writeCustomers(CustomerFilter.NONE, null, null, OutputStream.nullOutputStream());
+        verify(customerJsonWriter, times(2)).writePage(any(), any(), anyInt(), any());
+    }
+
+    private void stubWritePage(String json) throws IOException {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(3);
+            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(customerJsonWriter).writePage(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void writeCustomersCapsPageSize() throws IOException {
+        underTest.writeCustomers(CustomerFilter.NONE, null, CustomerService.MAX_PAGE_SIZE * 10, OutputStream.nullOutputStream());
+
+        verify(customerJsonWriter).writePage(eq(CustomerFilter.NONE), eq(0L), eq(CustomerService.MAX_PAGE_SIZE), any());
+    }
+
+    @Test
+    void writeCustomersFailWhenCursorInvalid() throws IOException {
+        assertThatThrownBy(() -> underTest.writeCustomers(CustomerFilter.NONE, "not-a-cursor", null, OutputStream.nullOutputStream()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("invalid cursor [not-a-cursor]");
+        verify(customerJsonWriter, never()).writePage(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void writeCustomersFailWhenAgeRangeInverted() throws IOException {
+        assertThatThrownBy(() -> underTest.writeCustomers(new CustomerFilter(50, 30, null), null, null, OutputStream.nullOutputStream()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("minAge [50] is greater than maxAge [30]");
+        verify(customerJsonWriter, never()).writePage(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void writeCustomersFailWhenEmailDomainInvalid() {
+        assertThatThrownBy(() -> underTest.writeCustomers(new CustomerFilter(null, null, "a@b.com"), null, null, OutputStream.nullOutputStream()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("invalid email domain [a@b.com]");
+    }
+
+    @Test
+    void writeCustomersFailsBeforeWritingWhenSizeInvalid() throws IOException {
+        assertThatThrownBy(() -> underTest.writeCustomers(CustomerFilter.NONE, null, 0, OutputStream.nullOutputStream()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("page size must be greater than 0");
+        verify(customerJsonWriter, never()).writePage(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void getCustomerViews() {
+        List<CustomerView> rows = List.of(
+                new CustomerView(1L, null, "a@gmail.com", null),
+                new CustomerView(2L, null, "b@gmail.com", null),
+                new CustomerView(3L, null, "c@gmail.com", null)
+        );
+        Set<CustomerField> fields = EnumSet.of(CustomerField.ID, CustomerField.EMAIL);
+        when(customerDao.selectCustomerViewsPage(CustomerFilter.NONE, fields, 0L, 3)).thenReturn(rows);
+
+        CustomerViewPage actual = underTest.getCustomerViews(CustomerFilter.NONE, "email", null, 2);
+
+        assertThat(actual.customers()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(CustomerService.decodeCursor(actual.nextCursor())).isEqualTo(2L);
+    }
+
+    @Test
+    void getCustomerViewsFailWhenFieldUnknown() {
+        assertThatThrownBy(() -> underTest.getCustomerViews(CustomerFilter.NONE, "email,password", null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("unknown field [password]");
+        verify(customerDao, never()).selectCustomerViewsPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getCustomerView() {
+        Long id = 1L;
+        when(customerDao.selectCustomerById(id))
+                .thenReturn(Optional.of(new CustomerEntity(id, "faker", "faker@gamil.com", 50)));
+
+        assertThat(underTest.getCustomerView(id, "name, age"))
+                .isEqualTo(new CustomerView(id, "faker", null, 50));
+    }
+
+    @Test
+    void searchCustomers() {
+        List<CustomerEntity> rows = List.of(new CustomerEntity(3L, "alexander", "alexander@gmail.com", 40));
+        when(customerDao.selectCustomersByName("alex", CustomerNameMatch.PREFIX, 0L, 3)).thenReturn(rows);
+
+        CustomerPage actual = underTest.searchCustomers(" alex ", "prefix", null, 2);
+
+        assertThat(actual.customers()).isEqualTo(rows);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void searchCustomersFailWhenTermTooShort() {
+        assertThatThrownBy(() -> underTest.searchCustomers("al", "contains", null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("name must be at least %s characters".formatted(CustomerService.MIN_SEARCH_LENGTH));
+        verify(customerDao, never()).selectCustomersByName(any(), any(), any(), anyInt());
     }
 
     @Test
-    void getAllCustomers() {
-        underTest.getAllCustomers();
-        verify(customerDao).selectAllCustomers();
+    void searchCustomersFailWhenMatchUnknown() {
+        assertThatThrownBy(() -> underTest.searchCustomers("alex", "fuzzy", null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("unsupported name match [fuzzy]");
     }
 
     @Test
@@ -44,6 +206,97 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(mock);
     }
 
+    @Test
+    void getEncodedCustomerReencodedAfterUpdate() {
+        Long id = 1L;
+        CustomerEntity before = new CustomerEntity(id, "faker", "faker@gamil.com", 50, 0L);
+        CustomerEntity after = new CustomerEntity(id, "Alex", "faker@gamil.com", 50, 1L);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(before), Optional.of(after));
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new CustomerChange(before, after)));
+
+        assertThat(underTest.getEncodedCustomer(id).eTag()).isEqualTo("\"0\"");
+        assertThat(underTest.getEncodedCustomer(id).eTag()).isEqualTo("\"0\"");
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", null, null));
+        CustomerResponseCache.EncodedCustomer actual = underTest.getEncodedCustomer(id);
+
+        assertThat(actual.eTag()).isEqualTo("\"1\"");
+        assertThat(new String(actual.json(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":1,\"name\":\"Alex\",\"email\":\"faker@gamil.com\",\"age\":50}");
+        verify(customerDao, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void getCustomersByIdsKeepsRequestOrder() {
+        CustomerEntity first = new CustomerEntity(1L, "a", "a@gmail.com", 20);
+        CustomerEntity third = new CustomerEntity(3L, "c", "c@gmail.com", 40);
+        when(customerDao.selectCustomersByIds(Set.of(3L, 2L, 1L))).thenReturn(List.of(first, third));
+
+        CustomerBatch actual = underTest.getCustomersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(actual.customers()).containsExactly(third, first);
+        assertThat(actual.missingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void getCustomersByIdsLoadsOnlyUncachedCustomers() {
+        CustomerEntity first = new CustomerEntity(1L, "a", "a@gmail.com", 20);
+        CustomerEntity second = new CustomerEntity(2L, "b", "b@gmail.com", 30);
+        when(customerDao.selectCustomerById(1L)).thenReturn(Optional.of(first));
+        when(customerDao.selectCustomersByIds(Set.of(2L))).thenReturn(List.of(second));
+        underTest.getCustomer(1L);
+
+        CustomerBatch actual = underTest.getCustomersByIds(List.of(1L, 2L));
+
+        assertThat(actual.customers()).containsExactly(first, second);
+        assertThat(actual.missingIds()).isEmpty();
+        verify(customerDao).selectCustomersByIds(Set.of(2L));
+    }
+
+    @Test
+    void getCustomersByIdsFailsWhenTooMany() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= CustomerService.MAX_PAGE_SIZE + 1; id++) {
+            ids.add(id);
+        }
+
+        assertThatThrownBy(() -> underTest.getCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("at most %s customers can be fetched at once".formatted(CustomerService.MAX_PAGE_SIZE));
+        assertThatThrownBy(() -> underTest.getCustomersByIds(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("no customer ids given");
+        verify(customerDao, never()).selectCustomersByIds(any());
+    }
+
+    @Test
+    void getCustomerServedFromCache() {
+        Long id = 1L;
+        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
+
+        underTest.getCustomer(id);
+        CustomerEntity actual = underTest.getCustomer(id);
+
+        assertThat(actual).isEqualTo(mock);
+        verify(customerDao, times(1)).selectCustomerById(id);
+    }
+
+    @Test
+    void getCustomerReloadsAfterUpdate() {
+        Long id = 1L;
+        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
+        CustomerEntity updated = new CustomerEntity(id, "alex", "faker@gamil.com", 50);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock), Optional.of(updated));
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new CustomerChange(mock, updated)));
+
+        underTest.getCustomer(id);
+        underTest.updateCustomer(id, new CustomerUpdateRequest("alex", null, null));
+        CustomerEntity actual = underTest.getCustomer(id);
+
+        assertThat(actual).isEqualTo(updated);
+        verify(customerDao, times(2)).selectCustomerById(id);
+    }
+
     @Test
     void getCustomerFailWhenEmptyOptional() {
         Long id = 1L;
@@ -58,9 +311,9 @@ class CustomerServiceTest {
     @Test
     void addCustomer() {
         String email = "faker@gamil.com";
-        when(customerDao.existPersonWithEmail(email)).thenReturn(false);
+        when(customerDao.insertCustomer(any())).thenReturn(Optional.of(7L));
         CustomerRegistrationRequest mock = new CustomerRegistrationRequest("faker", email, 60);
-        underTest.addCustomer(mock);
+        Long id = underTest.addCustomer(mock);
         ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
         verify(customerDao).insertCustomer(customerEntityArgumentCaptor.capture());
         CustomerEntity actual = customerEntityArgumentCaptor.getValue();
@@ -68,51 +321,119 @@ class CustomerServiceTest {
         assertThat(actual.getName()).isEqualTo(mock.name());
         assertThat(actual.getEmail()).isEqualTo(mock.email());
         assertThat(actual.getAge()).isEqualTo(mock.age());
+        assertThat(id).isEqualTo(7L);
+        verify(customerDao, never()).existPersonWithEmail(any());
+        verify(customerEmailFilter).add(email);
     }
 
     @Test
     void addCustomerFailWhenEmailExists() {
         String email = "faker@gamil.com";
-        when(customerDao.existPersonWithEmail(email)).thenReturn(true);
+        when(customerDao.insertCustomer(any())).thenReturn(Optional.empty());
         CustomerRegistrationRequest mock = new CustomerRegistrationRequest("faker", email, 60);
         assertThatThrownBy(() -> underTest.addCustomer(mock))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage(
                         "Email already taken"
                 );
-        verify(customerDao, never()).insertCustomer(any());
+    }
+
+    @Test
+    void addCustomers() {
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("alex", "alex@gmail.com", 20),
+                new CustomerRegistrationRequest("taken", "taken@gmail.com", 30),
+                new CustomerRegistrationRequest("again", "alex@gmail.com", 40),
+                new CustomerRegistrationRequest(null, "nameless@gmail.com", 50)
+        );
+        when(customerEmailFilter.existingEmails(anyCollection())).thenReturn(Set.of("taken@gmail.com"));
+
+        List<CustomerRegistrationResult> actual = underTest.addCustomers(requests);
+
+        assertThat(actual).extracting(CustomerRegistrationResult::status).containsExactly(
+                CustomerRegistrationResult.Status.CREATED,
+                CustomerRegistrationResult.Status.DUPLICATE,
+                CustomerRegistrationResult.Status.DUPLICATE,
+                CustomerRegistrationResult.Status.INVALID
+        );
+        verify(customerDao).insertCustomers(List.of(new CustomerEntity("alex", "alex@gmail.com", 20)));
+        verify(customerEmailFilter).add("alex@gmail.com");
+    }
+
+    @Test
+    void addCustomersUpdatesFilterAndStatisticsAfterCommit() {
+        when(customerEmailFilter.existingEmails(anyCollection())).thenReturn(Set.of());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.addCustomers(List.of(new CustomerRegistrationRequest("alex", "alex@gmail.com", 20)));
+
+            verify(customerEmailFilter, never()).add(any());
+            verify(customerStatistics, never()).added(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(customerEmailFilter).add("alex@gmail.com");
+        verify(customerStatistics).added(new CustomerEntity("alex", "alex@gmail.com", 20));
+    }
+
+    @Test
+    void addCustomersSkipsInsertWhenNothingToCreate() {
+        when(customerEmailFilter.existingEmails(anyCollection())).thenReturn(Set.of("taken@gmail.com"));
+
+        underTest.addCustomers(List.of(new CustomerRegistrationRequest("taken", "taken@gmail.com", 30)));
+
+        verify(customerDao, never()).insertCustomers(any());
+    }
+
+    @Test
+    void addCustomersFailWhenTooMany() {
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                CustomerService.MAX_BULK_SIZE + 1,
+                new CustomerRegistrationRequest("faker", "faker@gamil.com", 60)
+        );
+        assertThatThrownBy(() -> underTest.addCustomers(requests))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("at most %s customers can be registered at once".formatted(CustomerService.MAX_BULK_SIZE));
+        verify(customerDao, never()).insertCustomers(any());
     }
 
     @Test
     void updateCustomerAllProperties() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
         String newName = "Alex";
         String newEmail = "alex@gmail.com";
         int newAge = 66;
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(newName, newEmail, newAge);
-        when(customerDao.existPersonWithEmail(newEmail)).thenReturn(false);
+        CustomerEntity previous = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
+        CustomerEntity updated = new CustomerEntity(id, newName, newEmail, newAge);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new CustomerChange(previous, updated)));
 
-        underTest.updateCustomer(id, updateRequest);
+        CustomerEntity result = underTest.updateCustomer(id, updateRequest);
         ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
         verify(customerDao).updateCustomer(customerEntityArgumentCaptor.capture());
         CustomerEntity actual = customerEntityArgumentCaptor.getValue();
 
+        assertThat(actual.getId()).isEqualTo(id);
         assertThat(actual.getName()).isEqualTo(updateRequest.name());
         assertThat(actual.getEmail()).isEqualTo(updateRequest.email());
         assertThat(actual.getAge()).isEqualTo(updateRequest.age());
+        assertThat(result).isEqualTo(updated);
+        verify(customerStatistics).changed(new CustomerChange(previous, updated));
     }
 
     @Test
     void updateCustomerOnlyName() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
         String newName = "Alex";
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(newName, null, null);
+        when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new CustomerChange(
+                        new CustomerEntity(id, "faker", "faker@gamil.com", 50),
+                        new CustomerEntity(id, newName, "faker@gamil.com", 50)
+                )));
 
         underTest.updateCustomer(id, updateRequest);
         ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
@@ -120,103 +441,345 @@ class CustomerServiceTest {
         CustomerEntity actual = customerEntityArgumentCaptor.getValue();
 
         assertThat(actual.getName()).isEqualTo(updateRequest.name());
-        assertThat(actual.getEmail()).isEqualTo(mock.getEmail());
-        assertThat(actual.getAge()).isEqualTo(mock.getAge());
+        assertThat(actual.getEmail()).isNull();
+        assertThat(actual.getAge()).isNull();
     }
 
     @Test
     void updateCustomerOnlyEmail() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
         String newEmail = "alex@gmail.com";
-
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, newEmail, null);
-        when(customerDao.existPersonWithEmail(newEmail)).thenReturn(false);
+        when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new CustomerChange(
+                        new CustomerEntity(id, "faker", "faker@gamil.com", 50),
+                        new CustomerEntity(id, "faker", newEmail, 50)
+                )));
 
         underTest.updateCustomer(id, updateRequest);
         ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
         verify(customerDao).updateCustomer(customerEntityArgumentCaptor.capture());
         CustomerEntity actual = customerEntityArgumentCaptor.getValue();
 
-        assertThat(actual.getName()).isEqualTo(mock.getName());
+        assertThat(actual.getName()).isNull();
         assertThat(actual.getEmail()).isEqualTo(updateRequest.email());
-        assertThat(actual.getAge()).isEqualTo(mock.getAge());
+        assertThat(actual.getAge()).isNull();
+        verify(customerDao, never()).existPersonWithEmail(any());
     }
 
     @Test
     void updateCustomerOnlyAge() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
         int newAge = 66;
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, null, newAge);
+        when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new CustomerChange(
+                        new CustomerEntity(id, "faker", "faker@gamil.com", 50),
+                        new CustomerEntity(id, "faker", "faker@gamil.com", newAge)
+                )));
 
         underTest.updateCustomer(id, updateRequest);
         ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
         verify(customerDao).updateCustomer(customerEntityArgumentCaptor.capture());
         CustomerEntity actual = customerEntityArgumentCaptor.getValue();
 
-        assertThat(actual.getName()).isEqualTo(mock.getName());
-        assertThat(actual.getEmail()).isEqualTo(mock.getEmail());
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getEmail()).isNull();
         assertThat(actual.getAge()).isEqualTo(updateRequest.age());
     }
 
     @Test
     void updateCustomerFailWhenNoChange() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
-        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(mock.getName(), mock.getEmail(), mock.getAge());
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("faker", "faker@gamil.com", 50);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.existPersonWithId(id)).thenReturn(true);
 
         assertThatThrownBy(() ->  underTest.updateCustomer(id, updateRequest))
                 .isInstanceOf(RequestValidationException.class)
                 .hasMessage(
                         "no data changes found!"
                 );
+    }
+
+    @Test
+    void updateCustomerPassesExpectedVersion() {
+        Long id = 1L;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alex", null, null);
+        when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new CustomerChange(
+                        new CustomerEntity(id, "faker", "faker@gamil.com", 50, 3L),
+                        new CustomerEntity(id, "Alex", "faker@gamil.com", 50, 4L)
+                )));
+
+        CustomerEntity result = underTest.updateCustomer(id, updateRequest, 3L);
+        ArgumentCaptor<CustomerEntity> customerEntityArgumentCaptor = ArgumentCaptor.forClass(CustomerEntity.class);
+        verify(customerDao).updateCustomer(customerEntityArgumentCaptor.capture());
+
+        assertThat(customerEntityArgumentCaptor.getValue().getVersion()).isEqualTo(3L);
+        assertThat(result.getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void updateCustomerFailWhenVersionIsStale() {
+        Long id = 1L;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alex", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerById(id))
+                .thenReturn(Optional.of(new CustomerEntity(id, "faker", "faker@gamil.com", 50, 4L)));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] is at version [4], not [3]".formatted(id));
+        verify(customerStatistics, never()).changed(any());
+    }
+
+    @Test
+    void updateCustomerFailWhenNoChangeAtExpectedVersion() {
+        Long id = 1L;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("faker", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerById(id))
+                .thenReturn(Optional.of(new CustomerEntity(id, "faker", "faker@gamil.com", 50, 3L)));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest, 3L))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("no data changes found!");
+    }
+
+    @Test
+    void updateCustomerWithVersionFailWhenIdNotExists() {
+        Long id = 1L;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("faker", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest, 3L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] not found.".formatted(id));
+    }
+
+    @Test
+    void updateCustomerFailWhenNothingRequested() {
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, null, null);
+
+        assertThatThrownBy(() ->  underTest.updateCustomer(1L, updateRequest))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage(
+                        "no data changes found!"
+                );
         verify(customerDao, never()).updateCustomer(any());
+    }
 
+    @Test
+    void updateCustomerFailWhenIdNotExists() {
+        Long id = 1L;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("faker", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.existPersonWithId(id)).thenReturn(false);
+
+        assertThatThrownBy(() ->  underTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage(
+                        "customer with id [%s] not found.".formatted(id)
+                );
     }
 
     @Test
     void updateCustomerFailWhenEmailTaken() {
         Long id = 1L;
-        CustomerEntity mock = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(mock));
-
         String newEmail = "alex@gmail.com";
-
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, newEmail, null);
-        when(customerDao.existPersonWithEmail(newEmail)).thenReturn(true);
+        when(customerDao.updateCustomer(any())).thenThrow(new DuplicateResourceException("Email already taken"));
 
         assertThatThrownBy(() ->  underTest.updateCustomer(id, updateRequest))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage(
                         "Email already taken"
                 );
-        verify(customerDao, never()).updateCustomer(any());
     }
 
     @Test
     void deleteCustomerById() {
         Long id = 1L;
-        when(customerDao.existPersonWithId(id)).thenReturn(true);
+        CustomerEntity deleted = new CustomerEntity(id, "faker", "faker@gamil.com", 50);
+        when(customerDao.deleteCustomerById(id)).thenReturn(Optional.of(deleted));
         underTest.deleteCustomerById(id);
         verify(customerDao).deleteCustomerById(id);
+        verify(customerStatistics).removed(deleted);
     }
 
     @Test
     void deleteCustomerByIdFailWhenIdNotExists() {
         Long id = 1L;
-        when(customerDao.existPersonWithId(id)).thenReturn(false);
+        when(customerDao.deleteCustomerById(id)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> underTest.deleteCustomerById(id))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage(
                         "customer with id [%s] not found.".formatted(id)
                 );
-        verify(customerDao, never()).deleteCustomerById(id);
+        verify(customerStatistics, never()).removed(any());
+    }
+
+    @Test
+    void updateCustomersReportsOutcomeInRequestOrder() {
+        CustomerEntity previous = new CustomerEntity(1L, "alex", "alex@gmail.com", 20);
+        CustomerEntity current = new CustomerEntity(1L, "alex", "alex@example.com", 20);
+        when(customerDao.updateCustomers(any())).thenReturn(List.of(new CustomerChange(previous, current)));
+        when(customerDao.selectCustomersByIds(List.of(2L, 3L)))
+                .thenReturn(List.of(new CustomerEntity(2L, "jamila", "jamila@gmail.com", 19)));
+
+        List<CustomerBulkResult> actual = underTest.updateCustomers(List.of(
+                new CustomerBulkUpdateRequest(1L, null, "alex@example.com", null),
+                new CustomerBulkUpdateRequest(null, "no id", null, null),
+                new CustomerBulkUpdateRequest(2L, "jamila", null, null),
+                new CustomerBulkUpdateRequest(3L, null, null, 30),
+                new CustomerBulkUpdateRequest(1L, "alex", null, null),
+                new CustomerBulkUpdateRequest(4L, null, null, null)
+        ));
+
+        assertThat(actual).containsExactly(
+                new CustomerBulkResult(1L, CustomerBulkResult.Status.UPDATED, null),
+                new CustomerBulkResult(null, CustomerBulkResult.Status.INVALID, "id is required"),
+                new CustomerBulkResult(2L, CustomerBulkResult.Status.UNCHANGED, "no data changes found!"),
+                new CustomerBulkResult(3L, CustomerBulkResult.Status.NOT_FOUND, "customer with id [3] not found."),
+                new CustomerBulkResult(1L, CustomerBulkResult.Status.INVALID, "id repeated in request"),
+                new CustomerBulkResult(4L, CustomerBulkResult.Status.INVALID, "no data changes found!")
+        );
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CustomerEntity>> updates = ArgumentCaptor.forClass(List.class);
+        verify(customerDao).updateCustomers(updates.capture());
+        assertThat(updates.getValue()).extracting(CustomerEntity::getId).containsExactly(1L, 2L, 3L);
+        verify(customerEmailFilter).add("alex@example.com");
+        verify(customerStatistics).changed(new CustomerChange(previous, current));
+    }
+
+    @Test
+    void updateCustomersInChunks() {
+        List<CustomerBulkUpdateRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= CustomerService.BULK_CHUNK_SIZE + 1; id++) {
+            requests.add(new CustomerBulkUpdateRequest(id, null, null, 30));
+        }
+        when(customerDao.updateCustomers(any())).thenAnswer(invocation -> {
+            List<CustomerEntity> chunk = invocation.getArgument(0);
+            return chunk.stream()
+                    .map(update -> new CustomerChange(
+                            new CustomerEntity(update.getId(), "n", update.getId() + "@gmail.com", 20),
+                            new CustomerEntity(update.getId(), "n", update.getId() + "@gmail.com", 30)
+                    ))
+                    .toList();
+        });
+
+        List<CustomerBulkResult> actual = underTest.updateCustomers(requests);
+
+        assertThat(actual).hasSize(requests.size())
+                .allMatch(result -> result.status() == CustomerBulkResult.Status.UPDATED);
+        verify(customerDao, times(2)).updateCustomers(any());
+        verify(customerDao, never()).selectCustomersByIds(any());
+        verify(customerEmailFilter, never()).add(any());
+    }
+
+    @Test
+    void updateCustomersRetriesChunkOneByOneWhenEmailTaken() {
+        CustomerEntity previous = new CustomerEntity(1L, "alex", "alex@gmail.com", 20);
+        CustomerEntity current = new CustomerEntity(1L, "alex", "alex@gmail.com", 21);
+        when(customerDao.updateCustomers(any())).thenThrow(new DuplicateResourceException("Email already taken"));
+        when(customerDao.updateCustomer(any())).thenAnswer(invocation -> {
+            CustomerEntity update = invocation.getArgument(0);
+            if (update.getId() == 2L) {
+                throw new DuplicateResourceException("Email already taken");
+            }
+            return Optional.of(new CustomerChange(previous, current));
+        });
+
+        List<CustomerBulkResult> actual = underTest.updateCustomers(List.of(
+                new CustomerBulkUpdateRequest(1L, null, null, 21),
+                new CustomerBulkUpdateRequest(2L, null, "alex@gmail.com", null)
+        ));
+
+        assertThat(actual).containsExactly(
+                new CustomerBulkResult(1L, CustomerBulkResult.Status.UPDATED, null),
+                new CustomerBulkResult(2L, CustomerBulkResult.Status.DUPLICATE, "Email already taken")
+        );
+        verify(customerStatistics).changed(new CustomerChange(previous, current));
+    }
+
+    @Test
+    void updateCustomersFailWhenTooMany() {
+        List<CustomerBulkUpdateRequest> requests = Collections.nCopies(
+                CustomerService.MAX_BULK_SIZE + 1, new CustomerBulkUpdateRequest(1L, "a", null, null));
+
+        assertThatThrownBy(() -> underTest.updateCustomers(requests))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("at most %s customers can be updated at once".formatted(CustomerService.MAX_BULK_SIZE));
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void deleteCustomersByIds() {
+        CustomerEntity deleted = new CustomerEntity(2L, "jamila", "jamila@gmail.com", 19);
+        when(customerDao.deleteCustomersByIds(List.of(3L, 2L))).thenReturn(List.of(deleted));
+
+        List<CustomerBulkResult> actual = underTest.deleteCustomersByIds(List.of(3L, 2L, 3L));
+
+        assertThat(actual).containsExactly(
+                new CustomerBulkResult(3L, CustomerBulkResult.Status.NOT_FOUND, "customer with id [3] not found."),
+                new CustomerBulkResult(2L, CustomerBulkResult.Status.DELETED, null)
+        );
+        verify(customerStatistics).removed(deleted);
+    }
+
+    @Test
+    void deleteCustomersByIdsInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= CustomerService.BULK_CHUNK_SIZE * 2L; id++) {
+            ids.add(id);
+        }
+        when(customerDao.deleteCustomersByIds(any())).thenReturn(List.of());
+
+        underTest.deleteCustomersByIds(ids);
+
+        verify(customerDao).deleteCustomersByIds(ids.subList(0, CustomerService.BULK_CHUNK_SIZE));
+        verify(customerDao).deleteCustomersByIds(ids.subList(CustomerService.BULK_CHUNK_SIZE, ids.size()));
+    }
+
+    @Test
+    void deleteCustomersByIdsFailWhenIdIsNull() {
+        List<Long> ids = new ArrayList<>();
+        ids.add(1L);
+        ids.add(null);
+
+        assertThatThrownBy(() -> underTest.deleteCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("customer ids must not be null");
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void deleteCustomersByFilterUntilShortChunk() {
+        CustomerFilter filter = new CustomerFilter(null, null, "Gmail.com");
+        List<CustomerEntity> fullChunk = new ArrayList<>();
+        for (long id = 1; id <= CustomerService.BULK_CHUNK_SIZE; id++) {
+            fullChunk.add(new CustomerEntity(id, "n", id + "@gmail.com", 20));
+        }
+        CustomerEntity last = new CustomerEntity(1000L, "n", "last@gmail.com", 20);
+        when(customerDao.deleteCustomers(CustomerService.normalize(filter), CustomerService.BULK_CHUNK_SIZE))
+                .thenReturn(fullChunk, List.of(last));
+
+        List<CustomerBulkResult> actual = underTest.deleteCustomers(filter);
+
+        assertThat(actual).hasSize(CustomerService.BULK_CHUNK_SIZE + 1)
+                .allMatch(result -> result.status() == CustomerBulkResult.Status.DELETED);
+        assertThat(actual.get(actual.size() - 1).id()).isEqualTo(1000L);
+        verify(customerDao, times(2)).deleteCustomers(any(), anyInt());
+        verify(customerStatistics).removed(last);
+    }
+
+    @Test
+    void deleteCustomersFailWhenFilterEmpty() {
+        assertThatThrownBy(() -> underTest.deleteCustomers(CustomerFilter.NONE))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("a filter or ids are required to delete customers");
+        verifyNoInteractions(customerDao);
     }
 }
\ No newline at end of file
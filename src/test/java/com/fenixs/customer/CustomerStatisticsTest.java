@@ -0,0 +1,169 @@
+package com.fenixs.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatisticsTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private CustomerStatistics underTest;
+
+    private final List<CustomerEntity> customers = new ArrayList<>(List.of(
+            new CustomerEntity(1L, "alex", "alex@gmail.com", 21),
+            new CustomerEntity(2L, "jamila", "jamila@Gmail.com", 19),
+            new CustomerEntity(3L, "maria", "maria@example.com", 45)
+    ));
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStatistics(
+                customerDao,
+                new CustomerStatisticsProperties(10, 1),
+                transactionManager,
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private void reconcile() {
+        doAnswer(invocation -> {
+            Consumer<CustomerEntity> action = invocation.getArgument(0);
+            customers.forEach(action);
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+        underTest.reconcile();
+    }
+
+    @Test
+    void statsNotReadyBeforeFirstReconcile() {
+        underTest.added(customers.get(0));
+
+        assertThat(underTest.stats().ready()).isFalse();
+        assertThat(underTest.stats().customers()).isZero();
+    }
+
+    @Test
+    void reconcileCountsCustomers() {
+        reconcile();
+
+        CustomerStats actual = underTest.stats();
+        assertThat(actual.ready()).isTrue();
+        assertThat(actual.customers()).isEqualTo(3);
+        assertThat(actual.ageBuckets()).containsExactly(
+                new CustomerStats.AgeBucket(10, 19, 1),
+                new CustomerStats.AgeBucket(20, 29, 1),
+                new CustomerStats.AgeBucket(40, 49, 1)
+        );
+        assertThat(actual.topEmailDomains()).containsExactly(new CustomerStats.EmailDomain("gmail.com", 2));
+        assertThat(actual.reconciledAt()).isNotNull();
+    }
+
+    @Test
+    void writesAreAppliedIncrementally() {
+        reconcile();
+
+        underTest.added(new CustomerEntity(4L, "ali", "ali@example.com", 47));
+        underTest.added(new CustomerEntity(5L, "sam", "sam@example.com", 48));
+        underTest.removed(customers.get(1));
+        underTest.changed(new CustomerChange(
+                customers.get(0),
+                new CustomerEntity(1L, "alex", "alex@gmail.com", 41)
+        ));
+
+        CustomerStats actual = underTest.stats();
+        assertThat(actual.customers()).isEqualTo(4);
+        assertThat(actual.ageBuckets()).containsExactly(new CustomerStats.AgeBucket(40, 49, 4));
+        assertThat(actual.topEmailDomains()).containsExactly(new CustomerStats.EmailDomain("example.com", 3));
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        reconcile();
+        underTest.removed(customers.get(2));
+        underTest.removed(customers.get(2));
+
+        reconcile();
+
+        assertThat(underTest.stats().customers()).isEqualTo(3);
+    }
+
+    @Test
+    void writeReportedDuringRebuildIsCountedOnce() {
+        CustomerEntity added = new CustomerEntity(4L, "ali", "ali@example.com", 47);
+        doAnswer(invocation -> {
+            Consumer<CustomerEntity> action = invocation.getArgument(0);
+            action.accept(customers.get(0));
+            // committed after the snapshot, so the stream does not see it
+            underTest.recording(() -> {
+                underTest.added(added);
+                return added;
+            });
+            action.accept(customers.get(1));
+            action.accept(customers.get(2));
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+
+        underTest.reconcile();
+
+        assertThat(underTest.stats().customers()).isEqualTo(4);
+    }
+
+    @Test
+    void writeCommittedBeforeSnapshotIsCountedOnce() throws Exception {
+        reconcile();
+        CustomerEntity added = new CustomerEntity(4L, "ali", "ali@example.com", 47);
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch report = new CountDownLatch(1);
+        Thread write = new Thread(() -> underTest.recording(() -> {
+            customers.add(added);
+            committed.countDown();
+            await(report);
+            underTest.added(added);
+            return added;
+        }));
+        Thread rebuild = new Thread(underTest::reconcile);
+
+        write.start();
+        assertThat(committed.await(10, TimeUnit.SECONDS)).isTrue();
+        rebuild.start();
+        // let the rebuild reach the snapshot while the write has not reported yet
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (rebuild.getState() != Thread.State.WAITING && rebuild.getState() != Thread.State.TERMINATED
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        report.countDown();
+        write.join();
+        rebuild.join();
+
+        CustomerStats actual = underTest.stats();
+        assertThat(actual.customers()).isEqualTo(4);
+        assertThat(actual.ageBuckets()).contains(new CustomerStats.AgeBucket(40, 49, 2));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
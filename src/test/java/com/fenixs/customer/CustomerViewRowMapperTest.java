@@ -0,0 +1,31 @@
+package com.fenixs.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerViewRowMapperTest {
+
+    @Test
+    void mapRowReadsOnlySelectedColumns() throws SQLException {
+        CustomerViewRowMapper rowMapper = new CustomerViewRowMapper(EnumSet.of(CustomerField.ID, CustomerField.EMAIL));
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(1L);
+        when(rs.getString("email")).thenReturn("mock@gmail.com");
+
+        CustomerView actual = rowMapper.mapRow(rs, 1);
+
+        assertThat(actual).isEqualTo(new CustomerView(1L, null, "mock@gmail.com", null));
+        verify(rs, never()).getString("name");
+        verify(rs, never()).getInt(anyString());
+    }
+}
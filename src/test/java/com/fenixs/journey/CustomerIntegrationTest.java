@@ -1,6 +1,10 @@
 package com.fenixs.journey;
 
+import com.fenixs.customer.CustomerBatch;
+import com.fenixs.customer.CustomerBulkResult;
+import com.fenixs.customer.CustomerBulkUpdateRequest;
 import com.fenixs.customer.CustomerEntity;
+import com.fenixs.customer.CustomerPage;
 import com.fenixs.customer.CustomerRegistrationRequest;
 import com.fenixs.customer.CustomerUpdateRequest;
 import com.github.javafaker.Faker;
@@ -9,11 +13,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 
@@ -49,15 +57,7 @@ public class CustomerIntegrationTest {
                 .expectStatus()
                 .isOk();
         // get all customers
-        List<CustomerEntity> allCustomers = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<CustomerEntity>() {})
-                .returnResult()
-                .getResponseBody();
+        List<CustomerEntity> allCustomers = getAllCustomers();
         // make sure that customer is present
         CustomerEntity expect = new CustomerEntity(name, email, age);
         assertThat(allCustomers)
@@ -81,6 +81,19 @@ public class CustomerIntegrationTest {
                 .isOk()
                 .expectBody(new ParameterizedTypeReference<CustomerEntity>() {})
                 .isEqualTo(expect);
+
+        // get only the email of the customer
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}?fields=email", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(id)
+                .jsonPath("$.email").isEqualTo(email)
+                .jsonPath("$.name").doesNotExist()
+                .jsonPath("$.age").doesNotExist();
     }
 
     @Test
@@ -103,15 +116,7 @@ public class CustomerIntegrationTest {
                 .expectStatus()
                 .isOk();
         // get all customers
-        List<CustomerEntity> allCustomers = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<CustomerEntity>() {})
-                .returnResult()
-                .getResponseBody();
+        List<CustomerEntity> allCustomers = getAllCustomers();
 
         // get customer by id
         Long id = allCustomers.stream()
@@ -156,15 +161,7 @@ public class CustomerIntegrationTest {
                 .expectStatus()
                 .isOk();
         // get all customers
-        List<CustomerEntity> allCustomers = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<CustomerEntity>() {})
-                .returnResult()
-                .getResponseBody();
+        List<CustomerEntity> allCustomers = getAllCustomers();
 
         // get customer by id
         Long id = allCustomers.stream()
@@ -201,4 +198,201 @@ public class CustomerIntegrationTest {
 
         assertThat(actual).isEqualTo(expect);
     }
+
+    @Test
+    void canUpdateCustomerConditionally() {
+        String email = "etag-" + UUID.randomUUID() + "@fenxis.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("etag", email, 30);
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        Long id = getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(CustomerEntity::getId)
+                .findFirst()
+                .orElseThrow();
+
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .returnResult(CustomerEntity.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // an unchanged customer is not sent again
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(Mono.just(new CustomerUpdateRequest("first", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        // the second writer still holds the old version
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(Mono.just(new CustomerUpdateRequest("second", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("first")
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void canGetCustomersByIds() {
+        String email = "batch-" + UUID.randomUUID() + "@fenxis.com";
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("batch", email, 30)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        Long id = getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(CustomerEntity::getId)
+                .findFirst()
+                .orElseThrow();
+
+        CustomerBatch actual = client.get()
+                .uri(CUSTOMER_URI + "/batch?ids={missing},{id}", -1, id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerBatch.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(actual.customers()).containsExactly(new CustomerEntity(id, "batch", email, 30));
+        assertThat(actual.missingIds()).containsExactly(-1L);
+    }
+
+    @Test
+    void canUpdateAndDeleteCustomersInBulk() {
+        String domain = UUID.randomUUID() + ".fenxis.com";
+        List<Long> ids = new ArrayList<>();
+        for (String name : List.of("first", "second")) {
+            client.post()
+                    .uri(CUSTOMER_URI)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(new CustomerRegistrationRequest(name, name + "@" + domain, 30)), CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isOk();
+        }
+        getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().endsWith("@" + domain))
+                .map(CustomerEntity::getId)
+                .forEach(ids::add);
+
+        List<CustomerBulkResult> updated = client.put()
+                .uri(CUSTOMER_URI + "/bulk")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(
+                        new CustomerBulkUpdateRequest(ids.get(0), null, null, 31),
+                        new CustomerBulkUpdateRequest(-1L, null, null, 31)
+                ))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerBulkResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(updated).containsExactly(
+                new CustomerBulkResult(ids.get(0), CustomerBulkResult.Status.UPDATED, null),
+                new CustomerBulkResult(-1L, CustomerBulkResult.Status.NOT_FOUND, "customer with id [-1] not found.")
+        );
+
+        List<CustomerBulkResult> deletedByFilter = client.delete()
+                .uri(CUSTOMER_URI + "?minAge={minAge}&emailDomain={domain}", 31, domain)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerBulkResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(deletedByFilter).containsExactly(
+                new CustomerBulkResult(ids.get(0), CustomerBulkResult.Status.DELETED, null));
+
+        List<CustomerBulkResult> deletedByIds = client.delete()
+                .uri(CUSTOMER_URI + "?ids={first},{second}", ids.get(0), ids.get(1))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerBulkResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(deletedByIds).containsExactly(
+                new CustomerBulkResult(ids.get(0), CustomerBulkResult.Status.NOT_FOUND,
+                        "customer with id [%s] not found.".formatted(ids.get(0))),
+                new CustomerBulkResult(ids.get(1), CustomerBulkResult.Status.DELETED, null)
+        );
+    }
+
+    private List<CustomerEntity> getAllCustomers() {
+        List<CustomerEntity> allCustomers = new ArrayList<>();
+        String cursor = null;
+        do {
+            String nextCursor = cursor;
+            CustomerPage page = client.get()
+                    .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI)
+                            .queryParamIfPresent("cursor", Optional.ofNullable(nextCursor))
+                            .queryParam("size", 500)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerPage.class)
+                    .returnResult()
+                    .getResponseBody();
+            allCustomers.addAll(page.customers());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return allCustomers;
+    }
 }
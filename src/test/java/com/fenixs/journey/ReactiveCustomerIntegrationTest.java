@@ -0,0 +1,115 @@
+package com.fenixs.journey;
+
+import com.fenixs.customer.CustomerEntity;
+import com.fenixs.customer.CustomerPage;
+import com.fenixs.customer.CustomerRegistrationRequest;
+import com.fenixs.customer.CustomerRegistrationResponse;
+import com.fenixs.customer.CustomerUpdateRequest;
+import com.github.javafaker.Faker;
+import com.github.javafaker.Name;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+public class ReactiveCustomerIntegrationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    private static final String CUSTOMER_URI = "/api/v1/customers";
+
+    @Test
+    void canRegisterUpdateAndDeleteCustomer() {
+        Name fakerName = new Faker().name();
+        String name = fakerName.fullName();
+        String email = fakerName.lastName() + "-" + UUID.randomUUID() + "@fenxis.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(name, email, 30);
+
+        Long id = client.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerRegistrationResponse.class)
+                .returnResult()
+                .getResponseBody()
+                .id();
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(409);
+
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("newName", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerEntity.class)
+                .isEqualTo(new CustomerEntity(id, "newName", email, 30));
+
+        client.delete()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void canPageAndStreamCustomers() {
+        CustomerPage page = client.get()
+                .uri(CUSTOMER_URI + "?size=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(page.customers()).hasSizeLessThanOrEqualTo(1);
+
+        List<CustomerEntity> exported = client.get()
+                .uri(CUSTOMER_URI + "/export")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/x-ndjson")
+                .returnResult(CustomerEntity.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(exported).extracting(CustomerEntity::getId).isSorted();
+    }
+}